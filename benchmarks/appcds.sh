@@ -0,0 +1,29 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive for the API from a training run of the fast-startup profile, then prints the command that
+# starts a replica with it. The archive only matches the exact jars it was built from, so rebuild it with the image.
+#
+#   benchmarks/appcds.sh [extra application arguments, e.g. --spring.data.mongodb.uri=...]
+set -euo pipefail
+
+root="$(cd "$(dirname "$0")/.." && pwd)"
+target="$root/target"
+exploded="$target/appcds"
+archive="$target/app.jsa"
+
+jar="$(ls "$target"/api-*-exec.jar | head -n 1)"
+rm -rf "$exploded"
+mkdir -p "$exploded"
+(cd "$exploded" && jar -xf "$jar")
+
+# CDS only archives classes from the plain class path, not from Boot's nested jar launcher
+classpath="$exploded/BOOT-INF/classes"
+for lib in "$exploded"/BOOT-INF/lib/*.jar; do
+  classpath="$classpath:$lib"
+done
+
+java -XX:ArchiveClassesAtExit="$archive" -cp "$classpath" com.relativerank.api.ApiApplication \
+  --spring.profiles.active=fast-startup --startup.exit-after-warmup=true "$@"
+
+echo
+echo "start replicas with:"
+echo "java -XX:SharedArchiveFile=$archive -cp $classpath com.relativerank.api.ApiApplication --spring.profiles.active=fast-startup"
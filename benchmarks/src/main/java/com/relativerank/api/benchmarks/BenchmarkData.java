@@ -0,0 +1,103 @@
+package com.relativerank.api.benchmarks;
+
+import com.relativerank.api.db.GlobalRankedShowList;
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.dto.MalShowDetails;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic data shaped like production: show titles of realistic length and lists drawn with a popularity skew so
+ * popular shows appear in most lists.
+ */
+public class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    private static final String[] TITLE_WORDS = {"Shingeki", "no", "Kyojin", "Neon", "Genesis", "Evangelion", "Love",
+            "Live", "School", "Idol", "Project", "Yuru", "Camp", "Sword", "Art", "Online", "Steins", "Gate", "Kimetsu",
+            "Yaiba", "Season", "2nd", "Final", "Movie", "Hunter", "x", "Fullmetal", "Alchemist", "Brotherhood"};
+
+    public static List<String> showNames(int numberOfShows, long seed) {
+        var random = new Random(seed);
+        var showNames = new ArrayList<String>(numberOfShows);
+        for (var i = 0; i < numberOfShows; i++) {
+            var title = new StringBuilder();
+            var numberOfWords = 2 + random.nextInt(5);
+            for (var j = 0; j < numberOfWords; j++) {
+                title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]).append(' ');
+            }
+            showNames.add(title.append(i).toString());
+        }
+
+        return showNames;
+    }
+
+    /**
+     * Picks {@code listSize} distinct shows, favouring low indexes with a Zipf-like skew.
+     */
+    public static List<String> skewedShowNames(List<String> showNames, int listSize, Random random) {
+        var pickedIndexes = new LinkedHashSet<Integer>();
+        var size = Math.min(listSize, showNames.size());
+        while (pickedIndexes.size() < size) {
+            var index = (int) Math.floor(Math.pow(random.nextDouble(), 3) * showNames.size());
+            pickedIndexes.add(index);
+        }
+
+        var pickedShowNames = new ArrayList<String>(size);
+        for (var index : pickedIndexes) {
+            pickedShowNames.add(showNames.get(index));
+        }
+
+        return pickedShowNames;
+    }
+
+    public static List<RankedShow> rankedShows(int listSize, long seed) {
+        var showNames = showNames(Math.max(listSize * 4, 100), seed);
+        return ShowList.rankShowNames(skewedShowNames(showNames, listSize, new Random(seed)));
+    }
+
+    public static ShowList showList(String username, int listSize, long seed) {
+        return new ShowList(username + "-id", username, rankedShows(listSize, seed), 1L);
+    }
+
+    /**
+     * {@code numberOfUsers} lists of {@code listSize} shows each, all drawn from the same catalog of
+     * {@code catalogSize} shows so popular shows overlap the way they do across real users.
+     */
+    public static List<ShowList> showLists(int numberOfUsers, int listSize, int catalogSize, long seed) {
+        var catalog = showNames(catalogSize, seed);
+        var random = new Random(seed);
+        var showLists = new ArrayList<ShowList>(numberOfUsers);
+        for (var i = 0; i < numberOfUsers; i++) {
+            var username = "user-" + i;
+            showLists.add(new ShowList(username + "-id",
+                    username,
+                    ShowList.rankShowNames(skewedShowNames(catalog, listSize, random)),
+                    1L));
+        }
+
+        return showLists;
+    }
+
+    public static GlobalRankedShowList globalRankedShowListPage(int pageSize, long seed) {
+        return new GlobalRankedShowList("1", 50, rankedShows(pageSize, seed));
+    }
+
+    /**
+     * A MAL list as its pages come back: titles in MAL's order with scores of 0 to 10, unscored shows included.
+     */
+    public static List<MalShowDetails> malShows(int numberOfShows, long seed) {
+        var random = new Random(seed);
+        var malShows = new ArrayList<MalShowDetails>(numberOfShows);
+        for (var showName : showNames(numberOfShows, seed)) {
+            malShows.add(new MalShowDetails(showName, random.nextInt(11), 2));
+        }
+
+        return malShows;
+    }
+}
@@ -0,0 +1,98 @@
+package com.relativerank.api.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.relativerank.api.db.GlobalRankedShowList;
+import com.relativerank.api.db.ShowList;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a show list and of a page of the global ranking in each format the API negotiates. The
+ * encode benchmarks also report the payload size in bytes as the {@code bytes} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        // JMH reports event counters as they are, so this is the size of the last payload rather than a sum
+        public long bytes;
+    }
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"1000"})
+    public int listSize;
+
+    private ObjectMapper objectMapper;
+
+    private ShowList showList;
+
+    private byte[] encodedShowList;
+
+    private GlobalRankedShowList globalRankedShowListPage;
+
+    private byte[] encodedGlobalRankedShowListPage;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = switch (format) {
+            case "smile" -> new ObjectMapper(new SmileFactory());
+            case "cbor" -> new ObjectMapper(new CBORFactory());
+            default -> new ObjectMapper();
+        };
+        showList = BenchmarkData.showList("benchmark-user", listSize, 42);
+        encodedShowList = objectMapper.writeValueAsBytes(showList);
+
+        // the refresh saves the global ranking in pages of 100
+        globalRankedShowListPage = BenchmarkData.globalRankedShowListPage(100, 42);
+        encodedGlobalRankedShowListPage = objectMapper.writeValueAsBytes(globalRankedShowListPage);
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws IOException {
+        var encoded = objectMapper.writeValueAsBytes(showList);
+        payloadSize.bytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public ShowList decode() throws IOException {
+        return objectMapper.readValue(encodedShowList, ShowList.class);
+    }
+
+    @Benchmark
+    public byte[] encodeGlobalRankedShowListPage(PayloadSize payloadSize) throws IOException {
+        var encoded = objectMapper.writeValueAsBytes(globalRankedShowListPage);
+        payloadSize.bytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public GlobalRankedShowList decodeGlobalRankedShowListPage() throws IOException {
+        return objectMapper.readValue(encodedGlobalRankedShowListPage, GlobalRankedShowList.class);
+    }
+}
@@ -0,0 +1,49 @@
+package com.relativerank.api.benchmarks;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.relativerank.api.security.JwtEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing a token at login and verifying one on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtEncoder jwtEncoder;
+
+    private String jwt;
+
+    @Setup
+    public void setup() throws UnsupportedEncodingException {
+        jwtEncoder = new JwtEncoder("benchmarksecretbenchmarksecretbenchmarksecretbenchmarksecret", "ADMIN");
+        jwt = jwtEncoder.encodeUserJwt("benchmark-user");
+    }
+
+    @Benchmark
+    public String encodeUserJwt() {
+        return jwtEncoder.encodeUserJwt("benchmark-user");
+    }
+
+    @Benchmark
+    public DecodedJWT decodeJwt() {
+        return jwtEncoder.decodeJwt(jwt);
+    }
+}
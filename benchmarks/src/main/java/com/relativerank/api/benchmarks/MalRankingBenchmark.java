@@ -0,0 +1,46 @@
+package com.relativerank.api.benchmarks;
+
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.dto.MalShowDetails;
+import com.relativerank.api.util.MalImportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a crawled MAL list into ranks and percentile ranks, once all of its pages have arrived.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MalRankingBenchmark {
+
+    @Param({"300", "3000"})
+    public int numberOfShows;
+
+    private List<MalShowDetails> malShows;
+
+    @Setup
+    public void setup() {
+        malShows = BenchmarkData.malShows(numberOfShows, 42);
+    }
+
+    @Benchmark
+    public List<RankedShow> rankByScore() {
+        return MalImportService.rankByScore(malShows);
+    }
+}
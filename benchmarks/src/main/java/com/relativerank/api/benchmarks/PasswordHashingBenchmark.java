@@ -0,0 +1,54 @@
+package com.relativerank.api.benchmarks;
+
+import com.relativerank.api.security.HmacSha512PasswordEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PBKDF2 hashing cost per login or password change at a range of iteration counts, to pick
+ * {@code password-hashing.iterations} against the crypto pool's capacity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"1", "1000", "10000"})
+    public int iterations;
+
+    private HmacSha512PasswordEncoder passwordEncoder;
+
+    private byte[] salt;
+
+    @Setup
+    public void setup() {
+        passwordEncoder = new HmacSha512PasswordEncoder();
+        salt = passwordEncoder.generateRandomSalt();
+    }
+
+    @Benchmark
+    public byte[] hashPassword() throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return passwordEncoder.hashPassword("correct horse battery staple", salt, iterations);
+    }
+
+    @Benchmark
+    public byte[] generateRandomSalt() {
+        return passwordEncoder.generateRandomSalt();
+    }
+}
@@ -0,0 +1,143 @@
+package com.relativerank.api.benchmarks;
+
+import com.relativerank.api.db.Show;
+import com.relativerank.api.repositories.GlobalRankedShowListRepository;
+import com.relativerank.api.repositories.ShowListStore;
+import com.relativerank.api.repositories.ShowRepository;
+import com.relativerank.api.util.ExecutionSchedulers;
+import com.relativerank.api.util.RankedShowListRefreshTaskService;
+import com.relativerank.api.util.ShowCache;
+import com.relativerank.api.util.ShowRecommendationIndex;
+import com.relativerank.api.util.SimilarTasteIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One full global ranking refresh over {@code numberOfUsers} lists of {@code listSize} shows, including the similar
+ * taste and recommendation rebuilds it drives. Mongo is replaced by in memory stand ins and the show cache is warm,
+ * as it is after the first refresh, so this measures the aggregation rather than the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RankedShowListRefreshBenchmark {
+
+    @Param({"100", "1000"})
+    public int numberOfUsers;
+
+    @Param({"100", "500"})
+    public int listSize;
+
+    @Param({"5000"})
+    public int catalogSize;
+
+    private RankedShowListRefreshTaskService refreshTaskService;
+
+    private final AtomicReference<CountDownLatch> pagesToSave = new AtomicReference<>();
+
+    private int numberOfPages;
+
+    @Setup
+    public void setup() {
+        var showLists = BenchmarkData.showLists(numberOfUsers, listSize, catalogSize, 42);
+
+        var rankedShowNames = new HashSet<String>();
+        for (var showList : showLists) {
+            for (var rankedShow : showList.showList()) {
+                rankedShowNames.add(rankedShow.name());
+            }
+        }
+        // the refresh saves the global ranking in pages of 100
+        numberOfPages = (rankedShowNames.size() + 99) / 100;
+
+        var showListStore = stub(ShowListStore.class, (method, args) -> switch (method) {
+            case "findAll" -> Flux.fromIterable(showLists);
+            default -> null;
+        });
+        var showRepository = stub(ShowRepository.class, (method, args) -> switch (method) {
+            case "findByName" -> Mono.just(new Show((String) args[0], (String) args[0]));
+            default -> null;
+        });
+        var globalRankedShowListRepository = stub(GlobalRankedShowListRepository.class, (method, args) -> {
+            if (method.equals("save")) {
+                pagesToSave.get().countDown();
+                return Mono.just(args[0]);
+            }
+
+            return null;
+        });
+
+        var showCache = new ShowCache(showRepository, new SimpleMeterRegistry(), 50_000);
+        for (var showName : rankedShowNames) {
+            showCache.put(new Show(showName, showName));
+        }
+
+        refreshTaskService = new RankedShowListRefreshTaskService(globalRankedShowListRepository,
+                showListStore,
+                showCache,
+                new SimilarTasteIndex(100, 16, 4, 200),
+                new ShowRecommendationIndex(50, 50),
+                new ExecutionSchedulers(new SimpleMeterRegistry(), "platform", 64, 100000));
+    }
+
+    @Benchmark
+    public long refreshRankedShowList() throws InterruptedException {
+        var savedPages = new CountDownLatch(numberOfPages);
+        pagesToSave.set(savedPages);
+        refreshTaskService.refreshRankedShowList();
+        if (!savedPages.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("refresh did not save all " + numberOfPages + " pages");
+        }
+
+        return savedPages.getCount();
+    }
+
+    @FunctionalInterface
+    private interface StubMethod {
+        Object invoke(String method, Object[] args);
+    }
+
+    /**
+     * Implements only the methods the refresh calls, anything else is a mistake in the benchmark.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubMethod stubMethod) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+
+            var result = stubMethod.invoke(method.getName(), args);
+            if (result == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+
+            return result;
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.relativerank.api.benchmarks;
+
+import com.relativerank.api.security.HmacSha512PasswordEncoder;
+import com.relativerank.api.util.ExecutionSchedulers;
+import com.relativerank.api.util.VirtualThreads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput and latency percentiles of handing work to the application's schedulers from many callers at once, the
+ * way requests hand hashing and merging off the event loop. {@code cpu} is a password hash, {@code blocking} a
+ * millisecond spent parked like a slow driver call. Sample time mode reports the p99 and p99.9 to compare tails.
+ * <p>
+ * Each {@code scheduler} runs in both execution modes: {@code background} is {@link ExecutionSchedulers#background()}
+ * and {@code bounded} a scheduler from {@link ExecutionSchedulers#newBoundedScheduler}. Every combination gets bounded
+ * elastic's default concurrency and queue, so only the kind of thread differs and not the cap.
+ * <p>
+ * The {@code virtual} mode needs a JDK with virtual threads, run it with that JDK's {@code java -jar}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"background", "bounded"})
+    public String scheduler;
+
+    @Param({"cpu", "blocking"})
+    public String workload;
+
+    private ExecutionSchedulers executionSchedulers;
+
+    private Scheduler selectedScheduler;
+
+    private Callable<Object> work;
+
+    @Setup
+    public void setup() {
+        if (mode.equals("virtual") && !VirtualThreads.available()) {
+            throw new IllegalStateException("the virtual mode needs a JDK with virtual threads, this is "
+                    + Runtime.version());
+        }
+
+        // platform mode's background scheduler is bounded elastic, so everything else gets its limits
+        executionSchedulers = new ExecutionSchedulers(new SimpleMeterRegistry(), mode,
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE);
+        selectedScheduler = switch (scheduler) {
+            case "background" -> executionSchedulers.background();
+            case "bounded" -> executionSchedulers.newBoundedScheduler("benchmark",
+                    Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE);
+            default -> throw new IllegalArgumentException(scheduler);
+        };
+
+        var passwordEncoder = new HmacSha512PasswordEncoder();
+        var salt = passwordEncoder.generateRandomSalt();
+        work = switch (workload) {
+            case "cpu" -> () -> passwordEncoder.hashPassword("correct horse battery staple", salt, 1000);
+            case "blocking" -> () -> {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                return workload;
+            };
+            default -> throw new IllegalArgumentException(workload);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (selectedScheduler != Schedulers.boundedElastic()) {
+            selectedScheduler.dispose();
+        }
+    }
+
+    @Benchmark
+    public Object submit() {
+        return Mono.fromCallable(work).subscribeOn(selectedScheduler).block();
+    }
+}
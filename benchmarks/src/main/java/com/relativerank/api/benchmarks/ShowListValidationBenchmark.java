@@ -0,0 +1,46 @@
+package com.relativerank.api.benchmarks;
+
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.ShowList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating a show list, which every write and every construction of a {@link ShowList} pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShowListValidationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int listSize;
+
+    private List<RankedShow> rankedShows;
+
+    @Setup
+    public void setup() {
+        rankedShows = BenchmarkData.rankedShows(listSize, 42);
+    }
+
+    @Benchmark
+    public List<RankedShow> validateShowList() {
+        ShowList.validateShowList(rankedShows);
+        return rankedShows;
+    }
+}
@@ -0,0 +1,80 @@
+package com.relativerank.api.benchmarks.loadtest;
+
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.relativerank.api.benchmarks.BenchmarkData;
+import com.relativerank.api.db.GlobalRankedShowList;
+import com.relativerank.api.db.Show;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.db.ShowListChunk;
+import com.relativerank.api.db.ShowListHeader;
+import com.relativerank.api.db.User;
+import com.relativerank.api.security.HmacSha512PasswordEncoder;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds a Mongo database with a synthetic dataset for {@link LoadDriver}: {@code --shows} shows,
+ * {@code --users} users named {@code user-<n>} with password {@link #PASSWORD}, and a show list of
+ * {@code --list-size} shows for each, drawn with the same popularity skew as the benchmarks. Existing shows, users,
+ * show lists, including chunked ones, and global rankings in the database are dropped first.
+ * <p>
+ * Run against a local mongod, for example {@code docker run -p 27017:27017 mongo}, with
+ * {@code java -cp benchmarks/target/benchmarks.jar com.relativerank.api.benchmarks.loadtest.DatasetGenerator
+ * --mongo-uri=mongodb://localhost:27017 --database=test --users=1000 --shows=5000 --list-size=200}. Pass the
+ * server's {@code password-hashing.iterations} as {@code --password-iterations} so logins are not rehashed.
+ */
+public class DatasetGenerator {
+
+    static final String PASSWORD = "loadtest-password";
+
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        var options = new LoadTestOptions(args);
+        var passwordIterations = options.integer("password-iterations", 10000);
+
+        try (var mongoClient = MongoClients.create(options.string("mongo-uri", "mongodb://localhost:27017"))) {
+            var mongoTemplate = new ReactiveMongoTemplate(mongoClient, options.string("database", "test"));
+            // chunked show lists left by an earlier run would be read ahead of the freshly seeded documents
+            for (var type : List.of(Show.class, User.class, ShowList.class, ShowListHeader.class,
+                    ShowListChunk.class, GlobalRankedShowList.class)) {
+                mongoTemplate.dropCollection(type).block();
+            }
+
+            var showNames = BenchmarkData.showNames(options.shows(), options.seed());
+            var shows = new ArrayList<Show>(showNames.size());
+            for (var i = 0; i < showNames.size(); i++) {
+                shows.add(new Show("show-" + i, showNames.get(i)));
+            }
+            insertInBatches(mongoTemplate, shows);
+
+            var passwordEncoder = new HmacSha512PasswordEncoder();
+            var users = new ArrayList<User>(options.users());
+            for (var i = 0; i < options.users(); i++) {
+                var salt = passwordEncoder.generateRandomSalt();
+                users.add(new User("user-" + i + "-id",
+                        "user-" + i,
+                        passwordEncoder.hashPassword(PASSWORD, salt, passwordIterations),
+                        salt,
+                        passwordIterations));
+            }
+            insertInBatches(mongoTemplate, users);
+
+            var showLists = BenchmarkData.showLists(options.users(), options.listSize(), options.shows(), options.seed());
+            insertInBatches(mongoTemplate, showLists);
+
+            System.out.printf("seeded %d shows, %d users and %d show lists of %d shows%n",
+                    shows.size(), users.size(), showLists.size(), options.listSize());
+        }
+    }
+
+    private static <T> void insertInBatches(ReactiveMongoTemplate mongoTemplate, List<T> documents) {
+        for (var start = 0; start < documents.size(); start += BATCH_SIZE) {
+            mongoTemplate.insertAll(documents.subList(start, Math.min(start + BATCH_SIZE, documents.size())))
+                    .then()
+                    .block();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.relativerank.api.benchmarks.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.relativerank.api.benchmarks.BenchmarkData;
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.security.JwtEncoder;
+import okhttp3.mockwebserver.MockWebServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a running API at a fixed request rate with a mix of logins, show searches, show list reads and writes,
+ * global ranking pages and MAL imports, then reports throughput and p50/p99/p999 latency per operation.
+ * <p>
+ * Requests are sent open loop: each is scheduled for its slot in the target rate whether or not earlier ones have
+ * finished, and latency is measured from that slot, so a stalled server shows up as latency instead of silently
+ * lowering the offered load.
+ * <p>
+ * Seed the database with {@link DatasetGenerator} using the same dataset options, then start the API with the
+ * same JWT secret, {@code urls.mal-user-list} pointed at the MAL stand in this driver starts, login throttling
+ * loosened for a single client address, and the MAL rate limit raised so imports measure the API rather than the
+ * limiter, for example:
+ * <pre>
+ * java -jar target/api-0.0.1-SNAPSHOT-exec.jar --relativerank-jwt-secret=... \
+ *     --urls.mal-user-list='http://localhost:8099/animelist/%s/load.json?offset=%s' \
+ *     --login-throttle.max-attempts-per-address=1000000 \
+ *     --mal-client.permits-per-second=10000 --mal-client.burst=1000
+ * java -cp benchmarks/target/benchmarks.jar com.relativerank.api.benchmarks.loadtest.LoadDriver \
+ *     --base-url=http://localhost:8080 --jwt-secret=... --rate=200 --warmup=30s --duration=2m
+ * </pre>
+ */
+public class LoadDriver {
+
+    enum Operation {
+        LOGIN(10),
+        SEARCH_SHOWS(20),
+        GET_SHOW_LIST(30),
+        PUT_SHOW_LIST(10),
+        GLOBAL_RANKING_PAGE(25),
+        MAL_IMPORT(5);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final HttpClient httpClient;
+
+    private final String baseUrl;
+
+    private final JwtEncoder jwtEncoder;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<String> showNames;
+
+    private final List<ShowList> showLists;
+
+    private final Operation[] operationsByWeight;
+
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    LoadDriver(LoadTestOptions options) throws Exception {
+        httpClient = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(options.integer("client-threads", 8), runnable -> {
+                    var thread = new Thread(runnable, "load-driver");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        baseUrl = options.string("base-url", "http://localhost:8080");
+        jwtEncoder = new JwtEncoder(options.requiredString("jwt-secret"), options.string("admin-username", "ADMIN"));
+        showNames = BenchmarkData.showNames(options.shows(), options.seed());
+        showLists = BenchmarkData.showLists(options.users(), options.listSize(), options.shows(), options.seed());
+
+        var weightedOperations = new ArrayList<Operation>();
+        for (var operation : Operation.values()) {
+            weightedOperations.addAll(Collections.nCopies(operation.weight, operation));
+            // values up to an hour, 3 significant digits
+            latencies.put(operation, new Recorder(TimeUnit.HOURS.toNanos(1), 3));
+        }
+        operationsByWeight = weightedOperations.toArray(Operation[]::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new LoadTestOptions(args);
+
+        var malServer = new MockWebServer();
+        malServer.setDispatcher(new MalListDispatcher(
+                BenchmarkData.showNames(options.shows(), options.seed()),
+                options.integer("mal-list-size", 600),
+                options.longValue("mal-page-delay-ms", 200)));
+        malServer.start(options.integer("mal-port", 8099));
+        System.out.printf("MAL stand in listening, start the API with --urls.mal-user-list='http://localhost:%d/animelist/%%s/load.json?offset=%%s'%n",
+                malServer.getPort());
+
+        try {
+            new LoadDriver(options).run(options.integer("rate", 200),
+                    options.duration("warmup", Duration.ofSeconds(30)),
+                    options.duration("duration", Duration.ofMinutes(2)),
+                    options.integer("max-in-flight", 2000));
+        } finally {
+            malServer.shutdown();
+        }
+    }
+
+    void run(int requestsPerSecond, Duration warmup, Duration duration, int maxInFlight) throws InterruptedException {
+        var inFlight = new Semaphore(maxInFlight);
+        var dropped = new LongAdder();
+        var random = new SplittableRandom(7);
+        var intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+
+        var start = System.nanoTime();
+        var recordFrom = start + warmup.toNanos();
+        var end = recordFrom + duration.toNanos();
+        var sent = 0L;
+        while (true) {
+            var scheduledAt = start + sent * intervalNanos;
+            if (scheduledAt >= end) {
+                break;
+            }
+            if (!recording.get() && scheduledAt >= recordFrom) {
+                recording.set(true);
+                latencies.values().forEach(Recorder::reset);
+                failures.clear();
+                System.out.println("warmup done, recording");
+            }
+
+            var waitNanos = scheduledAt - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            sent++;
+
+            // past this many outstanding requests the client itself would become the bottleneck
+            if (!inFlight.tryAcquire()) {
+                if (recording.get()) {
+                    dropped.increment();
+                }
+                continue;
+            }
+
+            var operation = operationsByWeight[random.nextInt(operationsByWeight.length)];
+            send(operation, random.split(), scheduledAt).whenComplete((ignored, error) -> inFlight.release());
+        }
+
+        // let the last requests finish so their latency is counted
+        inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES);
+        report(duration, dropped.sum());
+    }
+
+    private CompletableFuture<Void> send(Operation operation, SplittableRandom random, long scheduledAt) {
+        HttpRequest request;
+        try {
+            request = request(operation, random);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (!recording.get()) {
+                        return null;
+                    }
+
+                    latencies.get(operation).recordValue(System.nanoTime() - scheduledAt);
+                    if (error != null) {
+                        failures.computeIfAbsent(operation + " " + error.getClass().getSimpleName(), key -> new LongAdder())
+                                .increment();
+                    } else if (response.statusCode() >= 400) {
+                        failures.computeIfAbsent(operation + " " + response.statusCode(), key -> new LongAdder())
+                                .increment();
+                    }
+
+                    return null;
+                });
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) throws Exception {
+        var showList = showLists.get(random.nextInt(showLists.size()));
+        var username = showList.username();
+
+        return switch (operation) {
+            case LOGIN -> HttpRequest.newBuilder(uri("/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                            Map.of("username", username, "password", DatasetGenerator.PASSWORD))))
+                    .build();
+            case SEARCH_SHOWS -> {
+                var words = showNames.get(random.nextInt(showNames.size())).split(" ");
+                yield HttpRequest.newBuilder(uri("/shows?show-name="
+                                + URLEncoder.encode(words[random.nextInt(words.length)], StandardCharsets.UTF_8)))
+                        .GET()
+                        .build();
+            }
+            case GET_SHOW_LIST -> HttpRequest.newBuilder(uri("/show-lists/" + username)).GET().build();
+            case PUT_SHOW_LIST -> HttpRequest.newBuilder(uri("/show-lists/" + username))
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + jwtEncoder.encodeUserJwt(username))
+                    .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(reordered(showList, random))))
+                    .build();
+            case GLOBAL_RANKING_PAGE -> HttpRequest.newBuilder(uri("/global-ranked-show-list/" + (1 + random.nextInt(10))))
+                    .GET()
+                    .build();
+            // mostly distinct usernames, so most imports miss the import cache like first time imports do
+            case MAL_IMPORT -> HttpRequest.newBuilder(uri("/import-from-mal?username=mal-user-" + random.nextInt(100_000)))
+                    .GET()
+                    .build();
+        };
+    }
+
+    /**
+     * The list with two shows swapped, the typical edit a user makes.
+     */
+    private static List<RankedShow> reordered(ShowList showList, SplittableRandom random) {
+        var showNames = new ArrayList<String>(showList.showList().size());
+        for (var rankedShow : showList.showList()) {
+            showNames.add(rankedShow.name());
+        }
+        if (showNames.size() > 1) {
+            Collections.swap(showNames, random.nextInt(showNames.size()), random.nextInt(showNames.size()));
+        }
+
+        return ShowList.rankShowNames(showNames);
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private void report(Duration duration, long dropped) {
+        var seconds = duration.toMillis() / 1000.0;
+        var total = new Histogram(TimeUnit.HOURS.toNanos(1), 3);
+
+        System.out.printf("%n%-20s %10s %10s %10s %10s %10s %10s%n", "operation", "requests", "req/s", "p50 ms", "p99 ms",
+                "p999 ms", "max ms");
+        for (var operation : Operation.values()) {
+            var histogram = latencies.get(operation).getIntervalHistogram();
+            total.add(histogram);
+            printRow(operation.name(), histogram, seconds);
+        }
+        printRow("TOTAL", total, seconds);
+
+        if (dropped > 0) {
+            System.out.printf("%n%d requests not sent because %s were already in flight%n", dropped, "max-in-flight");
+        }
+        if (!failures.isEmpty()) {
+            System.out.println("\nfailures:");
+            failures.forEach((failure, count) -> System.out.printf("  %-40s %d%n", failure, count.sum()));
+        }
+    }
+
+    private static void printRow(String name, Histogram histogram, double seconds) {
+        System.out.printf("%-20s %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.relativerank.api.benchmarks.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code --name=value} command line options shared by the generator and the driver, so both can be pointed at the
+ * same dataset by passing the same {@code --users}, {@code --shows}, {@code --list-size} and {@code --seed}.
+ */
+class LoadTestOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    LoadTestOptions(String[] args) {
+        for (var arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("expected --name=value but got " + arg);
+            }
+
+            var separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+    }
+
+    String string(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    String requiredString(String name) {
+        var value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("--" + name + " is required");
+        }
+
+        return value;
+    }
+
+    int integer(String name, int defaultValue) {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+    }
+
+    long longValue(String name, long defaultValue) {
+        return values.containsKey(name) ? Long.parseLong(values.get(name)) : defaultValue;
+    }
+
+    Duration duration(String name, Duration defaultValue) {
+        return values.containsKey(name) ? Duration.parse("PT" + values.get(name).toUpperCase()) : defaultValue;
+    }
+
+    int users() {
+        return integer("users", 1000);
+    }
+
+    int shows() {
+        return integer("shows", 5000);
+    }
+
+    int listSize() {
+        return integer("list-size", 200);
+    }
+
+    long seed() {
+        return longValue("seed", 42);
+    }
+}
@@ -0,0 +1,55 @@
+package com.relativerank.api.benchmarks.loadtest;
+
+import com.relativerank.api.benchmarks.BenchmarkData;
+import com.relativerank.api.util.MalImportService;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for MAL's list endpoint: every user has the same {@code listSize} entries, served in pages of
+ * {@link MalImportService#MAL_PAGE_SIZE} after {@code pageDelayMillis}, roughly what a real MAL page costs.
+ */
+class MalListDispatcher extends Dispatcher {
+
+    private final List<String> pages;
+
+    private final long pageDelayMillis;
+
+    MalListDispatcher(List<String> showNames, int listSize, long pageDelayMillis) {
+        this.pageDelayMillis = pageDelayMillis;
+
+        var malShows = BenchmarkData.malShows(listSize, 7);
+        var numberOfPages = (listSize + MalImportService.MAL_PAGE_SIZE - 1) / MalImportService.MAL_PAGE_SIZE;
+        pages = new ArrayList<>(numberOfPages);
+        for (var page = 0; page < numberOfPages; page++) {
+            var json = new StringBuilder("[");
+            var end = Math.min((page + 1) * MalImportService.MAL_PAGE_SIZE, listSize);
+            for (var i = page * MalImportService.MAL_PAGE_SIZE; i < end; i++) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                // titles come from the seeded catalog so imported lists resolve to existing shows
+                json.append("{\"status\":2,\"score\":").append(malShows.get(i).score())
+                        .append(",\"anime_title\":\"").append(showNames.get(i % showNames.size())).append("\"}");
+            }
+            pages.add(json.append(']').toString());
+        }
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        var offset = Integer.parseInt(request.getRequestUrl().queryParameter("offset"));
+        var page = offset / MalImportService.MAL_PAGE_SIZE;
+        var body = page < pages.size() ? pages.get(page) : "[]";
+
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(body)
+                .setBodyDelay(pageDelayMillis, TimeUnit.MILLISECONDS);
+    }
+}
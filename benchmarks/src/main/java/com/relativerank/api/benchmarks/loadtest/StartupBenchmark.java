@@ -0,0 +1,140 @@
+package com.relativerank.api.benchmarks.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts the API as a fresh process {@code --runs} times and reports, from process start, the time until its
+ * readiness probe passes and the time until its p99 latency settles, meaning the p99 of every one second window
+ * from then on stays within {@code --steady-tolerance} of the p99 of the last window.
+ * <p>
+ * The command is run as given, so the same benchmark compares a plain start against the fast-startup profile with
+ * and without the archive from {@code benchmarks/appcds.sh}, for example:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.relativerank.api.benchmarks.loadtest.StartupBenchmark \
+ *     --command="java -XX:SharedArchiveFile=target/app.jsa -cp ... com.relativerank.api.ApiApplication --spring.profiles.active=fast-startup" \
+ *     --path=/global-ranked-show-list/1 --rate=200 --measure=60s
+ * </pre>
+ * Readiness needs {@code management.endpoint.health.probes.enabled}, which the fast-startup profile sets; for other
+ * runs pass it on the command. It is polled on {@code --management-url}, the actuator's own port.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        var options = new LoadTestOptions(args);
+        var command = List.of(options.requiredString("command").split(" "));
+        var baseUrl = options.string("base-url", "http://localhost:8080");
+        var managementUrl = options.string("management-url", "http://localhost:8081");
+        var path = options.string("path", "/global-ranked-show-list/1");
+        var rate = options.integer("rate", 200);
+        var measure = options.duration("measure", Duration.ofSeconds(60));
+        var tolerance = Double.parseDouble(options.string("steady-tolerance", "0.1"));
+
+        var httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        for (var run = 1; run <= options.integer("runs", 3); run++) {
+            var process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            var startNanos = System.nanoTime();
+            try {
+                var readyNanos = awaitReady(httpClient, managementUrl, startNanos);
+                var windowP99s = measureWindows(httpClient, URI.create(baseUrl + path), rate, measure);
+                var steadyWindow = steadyWindow(windowP99s, tolerance);
+
+                System.out.printf("run %d: ready after %d ms, p99 steady after %s, final p99 %.2f ms%n",
+                        run,
+                        TimeUnit.NANOSECONDS.toMillis(readyNanos - startNanos),
+                        steadyWindow < 0
+                                ? "never"
+                                : (TimeUnit.NANOSECONDS.toMillis(readyNanos - startNanos) + steadyWindow * 1000L) + " ms",
+                        windowP99s.get(windowP99s.size() - 1) / 1_000_000.0);
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+    }
+
+    private static long awaitReady(HttpClient httpClient, String managementUrl, long startNanos)
+            throws InterruptedException {
+        var readiness = HttpRequest.newBuilder(URI.create(managementUrl + "/actuator/health/readiness")).GET().build();
+        while (System.nanoTime() - startNanos < TimeUnit.MINUTES.toNanos(5)) {
+            try {
+                if (httpClient.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return System.nanoTime();
+                }
+            } catch (Exception notListeningYet) {
+                // keep polling
+            }
+            Thread.sleep(10);
+        }
+
+        throw new IllegalStateException("not ready within 5 minutes");
+    }
+
+    /**
+     * Sends requests at {@code rate} a second, one after another as in the load driver's open loop, and returns
+     * the p99 in nanoseconds of each one second window.
+     */
+    private static List<Long> measureWindows(HttpClient httpClient, URI uri, int rate, Duration measure) {
+        var request = HttpRequest.newBuilder(uri).GET().build();
+        var intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        var windows = (int) measure.toSeconds();
+        var histograms = new ArrayList<Histogram>(windows);
+        for (var i = 0; i < windows; i++) {
+            histograms.add(new Histogram(TimeUnit.MINUTES.toNanos(1), 3));
+        }
+
+        var start = System.nanoTime();
+        var pending = new ArrayList<CompletableFuture<?>>();
+        for (long sent = 0; sent < (long) rate * windows; sent++) {
+            var scheduledAt = start + sent * intervalNanos;
+            var waitNanos = scheduledAt - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+
+            var histogram = histograms.get((int) (sent / rate));
+            pending.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        synchronized (histogram) {
+                            histogram.recordValue(Math.min(System.nanoTime() - scheduledAt, histogram.getHighestTrackableValue()));
+                        }
+                    }));
+        }
+        pending.forEach(future -> future.exceptionally(error -> null).join());
+
+        var p99s = new ArrayList<Long>(windows);
+        for (var histogram : histograms) {
+            p99s.add(histogram.getValueAtPercentile(99));
+        }
+
+        return p99s;
+    }
+
+    /**
+     * The first window from which every later window's p99 is within {@code tolerance} of the last one, or -1.
+     */
+    private static int steadyWindow(List<Long> windowP99s, double tolerance) {
+        var finalP99 = windowP99s.get(windowP99s.size() - 1);
+        var steadyFrom = -1;
+        for (var i = windowP99s.size() - 1; i >= 0; i--) {
+            if (Math.abs(windowP99s.get(i) - finalP99) > finalP99 * tolerance) {
+                break;
+            }
+            steadyFrom = i;
+        }
+
+        return steadyFrom;
+    }
+}
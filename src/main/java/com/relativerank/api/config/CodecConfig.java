@@ -0,0 +1,31 @@
+package com.relativerank.api.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.relativerank.api.util.ContentNegotiation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class CodecConfig {
+
+    @Bean
+    public CodecCustomizer binaryJacksonCodecCustomizer(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+        var smileMapper = objectMapperBuilders.getObject().factory(new SmileFactory()).build();
+        var cborMapper = objectMapperBuilders.getObject().factory(new CBORFactory()).build();
+
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper, ContentNegotiation.APPLICATION_SMILE));
+            configurer.customCodecs().register(new Jackson2SmileEncoder(smileMapper, ContentNegotiation.APPLICATION_SMILE));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, ContentNegotiation.APPLICATION_CBOR));
+            configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper, ContentNegotiation.APPLICATION_CBOR));
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.relativerank.api.config;
+
+import com.relativerank.api.repositories.ShowListStore;
+import com.relativerank.api.util.ServerTiming;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Adds a {@code Server-Timing} header to every response when {@code server-timing.enabled} is set, breaking the
+ * request down into security context loading ({@code auth}), repository and show list store calls
+ * ({@code mongo}), password hashing ({@code hash}), MAL ({@code mal}) and body encoding ({@code encode}).
+ * <p>
+ * Requests slower than {@code server-timing.slow-threshold} are logged with the same breakdown, sampled at
+ * {@code server-timing.slow-sample-rate} so a slow dependency cannot flood the log.
+ */
+@Configuration
+@ConditionalOnProperty(name = "server-timing.enabled", havingValue = "true")
+public class ServerTimingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingConfig.class);
+
+    @Bean
+    WebFilter serverTimingWebFilter(@Value("${server-timing.slow-threshold:1s}") Duration slowThreshold,
+                                    @Value("${server-timing.slow-sample-rate:0.1}") double slowSampleRate) {
+        return new ServerTimingWebFilter(slowThreshold.toNanos(), slowSampleRate);
+    }
+
+    /**
+     * Times every reactive call on the repositories and show list stores. Only beans this application defines are
+     * wrapped, through the interfaces it declares, so nothing injecting them notices the proxy.
+     */
+    @Bean
+    static BeanPostProcessor serverTimingRepositoryPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof ReactiveCrudRepository<?, ?>) && !(bean instanceof ShowListStore)) {
+                    return bean;
+                }
+
+                var proxyFactory = new ProxyFactory();
+                proxyFactory.setTarget(bean);
+                for (var beanInterface : ClassUtils.getAllInterfacesAsSet(bean)) {
+                    if (beanInterface.getName().startsWith("com.relativerank.api.")) {
+                        proxyFactory.addInterface(beanInterface);
+                    }
+                }
+                proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                    var result = invocation.proceed();
+                    if (result instanceof Mono<?> mono) {
+                        return ServerTiming.time("mongo", mono);
+                    }
+                    if (result instanceof Flux<?> flux) {
+                        return ServerTiming.time("mongo", flux);
+                    }
+
+                    return result;
+                });
+
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    private record ServerTimingWebFilter(long slowThresholdNanos, double slowSampleRate) implements WebFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+            var serverTiming = new ServerTiming();
+            exchange.getAttributes().put(ServerTiming.ATTRIBUTE, serverTiming);
+
+            var response = exchange.getResponse();
+            // the response commits once the encoder has produced its first buffer, so this is where encoding ends
+            response.beforeCommit(() -> {
+                serverTiming.committing();
+                response.getHeaders().add("Server-Timing", serverTiming.header());
+                return Mono.empty();
+            });
+
+            return chain.filter(exchange)
+                    .contextWrite(Context.of(ServerTiming.class, serverTiming))
+                    .doFinally(signal -> {
+                        if (serverTiming.elapsedNanos() >= slowThresholdNanos
+                                && ThreadLocalRandom.current().nextDouble() < slowSampleRate) {
+                            log.warn("slow request {} {} -> {}: {}",
+                                    exchange.getRequest().getMethod(),
+                                    exchange.getRequest().getPath(),
+                                    response.getStatusCode(),
+                                    serverTiming.header());
+                        }
+                    });
+        }
+
+        @Override
+        public int getOrder() {
+            // ahead of Spring Security's filter chain so loading the security context is inside the timing
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.relativerank.api.config;
+
+import com.relativerank.api.db.GlobalRankedShowList;
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.repositories.GlobalRankedShowListRepository;
+import com.relativerank.api.util.RankedShowListRefreshTaskService;
+import com.relativerank.api.util.ShowCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms a new instance up before it reports ready, for the {@code fast-startup} profile.
+ * <p>
+ * Runners run once the server is listening but before readiness flips to accepting traffic, so this primes the show
+ * cache with the top of the global ranking and then sends {@code startup.warmup.requests} requests through the
+ * real stack to each of {@code startup.warmup.paths}, which initializes lazy beans and gets the hot handlers and
+ * codecs compiled before the load balancer sends the first user. With {@code startup.exit-after-warmup} the process
+ * exits afterwards, which is how the AppCDS training run ends.
+ */
+@Configuration
+@ConditionalOnProperty(name = "startup.warmup.enabled", havingValue = "true")
+public class StartupWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    /**
+     * The refresh job is never injected anywhere, so lazily initialized it would never be created or scheduled.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerScheduledBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(RankedShowListRefreshTaskService.class);
+    }
+
+    @Bean
+    ApplicationRunner startupWarmupRunner(GlobalRankedShowListRepository globalRankedShowListRepository,
+                                          ShowCache showCache,
+                                          Environment environment,
+                                          ConfigurableApplicationContext applicationContext,
+                                          @Value("${startup.warmup.ranking-pages:5}") int rankingPages,
+                                          @Value("${startup.warmup.requests:500}") int requests,
+                                          @Value("${startup.warmup.concurrency:8}") int concurrency,
+                                          @Value("${startup.warmup.paths:/global-ranked-show-list/1,/show-lists?usernames=warmup}") List<String> paths,
+                                          @Value("${startup.warmup.timeout:60s}") Duration timeout,
+                                          @Value("${startup.exit-after-warmup:false}") boolean exitAfterWarmup) {
+        return (ApplicationArguments args) -> {
+            var start = Instant.now();
+
+            // a warmup that fails or runs out of time must still let the instance become ready, just colder
+            var primedShows = Flux.range(1, rankingPages)
+                    .concatMap(page -> globalRankedShowListRepository.findById(Integer.toString(page)))
+                    .flatMapIterable(GlobalRankedShowList::showList)
+                    .map(RankedShow::name)
+                    .flatMap(showCache::findByName, concurrency)
+                    .count()
+                    .timeout(timeout)
+                    .onErrorResume(error -> {
+                        log.warn("warmup gave up priming the show cache: {}", error.toString());
+                        return Mono.just(0L);
+                    })
+                    .block();
+
+            var webClient = WebClient.create("http://localhost:" + environment.getProperty("local.server.port"));
+            var completedRequests = new AtomicLong();
+            Flux.range(0, requests)
+                    // only the work matters, not whether the page exists yet on a fresh database
+                    .flatMap(i -> webClient.get()
+                            .uri(paths.get(i % paths.size()))
+                            .exchangeToMono(ClientResponse::releaseBody)
+                            .doOnSuccess(ignored -> completedRequests.incrementAndGet())
+                            .onErrorResume(error -> Mono.empty()), concurrency)
+                    .then()
+                    .timeout(timeout)
+                    .onErrorResume(error -> {
+                        log.warn("warmup gave up sending requests: {}", error.toString());
+                        return Mono.empty();
+                    })
+                    .block();
+
+            log.info("warmup primed {} shows and completed {} of {} requests in {} ms",
+                    primedShows, completedRequests.get(), requests, Duration.between(start, Instant.now()).toMillis());
+
+            if (exitAfterWarmup) {
+                System.exit(SpringApplication.exit(applicationContext));
+            }
+        };
+    }
+}
@@ -1,24 +1,40 @@
 package com.relativerank.api.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    /**
+     * Built from Boot's builder so client request metrics apply, over a bounded connection pool so a burst of imports
+     * queues for connections instead of opening an unbounded number of them.
+     */
     @Bean
-    public WebClient webClient() {
-        return WebClient.builder()
-                .exchangeStrategies(ExchangeStrategies.builder()
-                        .codecs(configurer -> configurer
-                                .defaultCodecs()
-                                .maxInMemorySize(16 * 1024 * 1024))
-                        .build())
+    public WebClient webClient(WebClient.Builder webClientBuilder,
+                               @Value("${mal-client.max-connections:16}") int maxConnections,
+                               @Value("${mal-client.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+                               @Value("${mal-client.connect-timeout:5s}") Duration connectTimeout,
+                               @Value("${mal-client.response-timeout:10s}") Duration responseTimeout) {
+        var connectionProvider = ConnectionProvider.builder("mal")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(Duration.ofSeconds(30))
                 .build();
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+
+        return webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
     }
 
     @Bean
@@ -1,14 +1,18 @@
 package com.relativerank.api.db;
 
+import com.relativerank.api.dto.ShowListOperation;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 @Document
 public record ShowList(String id,
                        @Indexed(unique = true) String username,
-                       List<RankedShow> showList) {
+                       List<RankedShow> showList,
+                       Long version) {
 
     public ShowList {
         if (id == null) {
@@ -26,6 +30,10 @@ public record ShowList(String id,
         validateShowList(showList);
     }
 
+    public long versionOrZero() {
+        return version != null ? version : 0;
+    }
+
     public static void validateShowList(List<RankedShow> showList) {
         for (var i = 0; i < showList.size(); i++) {
             var rankedShow = showList.get(i);
@@ -40,4 +48,68 @@ public record ShowList(String id,
             }
         }
     }
+
+    public static List<RankedShow> rankShowNames(List<String> showNames) {
+        return rankShowNames(showNames, showNames.size());
+    }
+
+    /**
+     * Ranks the leading {@code showNames} of a list that is {@code listSize} shows long in total.
+     */
+    public static List<RankedShow> rankShowNames(List<String> showNames, int listSize) {
+        var rankedShows = new ArrayList<RankedShow>(showNames.size());
+        for (var i = 0; i < showNames.size(); i++) {
+            var percentileRank = 1 - (1.0 / (1 + listSize) * (i + 1));
+            rankedShows.add(new RankedShow(showNames.get(i), i + 1, percentileRank));
+        }
+
+        return rankedShows;
+    }
+
+    public static List<RankedShow> applyOperations(List<RankedShow> showList, List<ShowListOperation> operations) {
+        var showNames = new ArrayList<String>(showList.size() + operations.size());
+        var showNameSet = new HashSet<String>();
+        for (var rankedShow : showList) {
+            showNames.add(rankedShow.name());
+            showNameSet.add(rankedShow.name());
+        }
+
+        for (var i = 0; i < operations.size(); i++) {
+            var operation = operations.get(i);
+            if (operation == null || operation.op() == null) {
+                throw new IllegalArgumentException("operation at index: " + i + " must have an op");
+            }
+
+            switch (operation.op()) {
+                case "insert" -> {
+                    checkIndex(operation.index(), showNames.size() + 1, "index", i);
+                    if (operation.name() == null || !showNameSet.add(operation.name())) {
+                        throw new IllegalArgumentException(
+                                "operation at index: " + i + " must insert a name not already in the show list");
+                    }
+                    showNames.add(operation.index(), operation.name());
+                }
+                case "remove" -> {
+                    checkIndex(operation.index(), showNames.size(), "index", i);
+                    showNameSet.remove(showNames.remove((int) operation.index()));
+                }
+                case "move" -> {
+                    checkIndex(operation.from(), showNames.size(), "from", i);
+                    checkIndex(operation.to(), showNames.size(), "to", i);
+                    showNames.add(operation.to(), showNames.remove((int) operation.from()));
+                }
+                default -> throw new IllegalArgumentException(
+                        "operation at index: " + i + " has unknown op " + operation.op());
+            }
+        }
+
+        return rankShowNames(showNames);
+    }
+
+    private static void checkIndex(Integer index, int upperBound, String field, int operationIndex) {
+        if (index == null || index < 0 || index >= upperBound) {
+            throw new IllegalArgumentException("operation at index: " + operationIndex
+                    + " must have its " + field + " field within the show list");
+        }
+    }
 }
@@ -0,0 +1,16 @@
+package com.relativerank.api.db;
+
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * A fixed size slice of a chunked show list. Only names are stored since rank and percentile are derived from the
+ * position in the whole list, which keeps chunks before an edit untouched.
+ */
+@Document
+public record ShowListChunk(String id,
+                            @Indexed String username,
+                            int index,
+                            List<String> showNames) {}
@@ -0,0 +1,17 @@
+package com.relativerank.api.db;
+
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Entry point of a show list stored in chunks. {@code chunkIds} holds the chunk document for each chunk index, so
+ * unchanged chunks keep their old documents across edits.
+ */
+@Document
+public record ShowListHeader(String id,
+                             @Indexed(unique = true) String username,
+                             Long version,
+                             int size,
+                             List<String> chunkIds) {}
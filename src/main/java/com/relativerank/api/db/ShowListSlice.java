@@ -0,0 +1,12 @@
+package com.relativerank.api.db;
+
+import java.util.List;
+
+/**
+ * The leading entries of a user's show list. {@code size} is the length of the whole list, and ranks and percentiles
+ * are those of the whole list, so a slice is not a valid {@link ShowList} on its own.
+ */
+public record ShowListSlice(String username,
+                            Long version,
+                            int size,
+                            List<RankedShow> showList) {}
@@ -7,4 +7,13 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public record User(String id,
                    @Indexed(unique = true) String username,
                    byte[] hashedPassword,
-                   byte[] passwordSalt) {}
+                   byte[] passwordSalt,
+                   Integer passwordIterations) {
+
+    /**
+     * Users saved before iterations were recorded have a single HMAC hash rather than a PBKDF2 one.
+     */
+    public boolean hasLegacyPasswordHash() {
+        return passwordIterations == null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.relativerank.api.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of an import job. {@code state} moves from {@code queued} through {@code fetching} and {@code saving} to
+ * either {@code completed} or {@code failed}, in which case {@code error} says why.
+ */
+public record ImportJobStatus(String id,
+                              String username,
+                              String malUsername,
+                              String mode,
+                              String state,
+                              int importedShows,
+                              int unresolvedShows,
+                              String error,
+                              Instant createdAt,
+                              Instant updatedAt) {
+
+    public ImportJobStatus withState(String newState) {
+        return new ImportJobStatus(id, username, malUsername, mode, newState, importedShows, unresolvedShows, error,
+                createdAt, Instant.now());
+    }
+
+    public ImportJobStatus completed(int importedShowCount, int unresolvedShowCount) {
+        return new ImportJobStatus(id, username, malUsername, mode, "completed", importedShowCount, unresolvedShowCount,
+                null, createdAt, Instant.now());
+    }
+
+    public ImportJobStatus failed(String failure) {
+        return new ImportJobStatus(id, username, malUsername, mode, "failed", importedShows, unresolvedShows, failure,
+                createdAt, Instant.now());
+    }
+}
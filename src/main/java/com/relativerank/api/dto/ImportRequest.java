@@ -0,0 +1,7 @@
+package com.relativerank.api.dto;
+
+/**
+ * Starts a MAL import into the caller's show list. {@code mode} is {@code replace} (the default) to overwrite the
+ * list, or {@code merge} to append imported shows the list does not already have.
+ */
+public record ImportRequest(String malUsername, String mode) {}
@@ -0,0 +1,3 @@
+package com.relativerank.api.dto;
+
+public record ShowBatchRequest(String id, String name) {}
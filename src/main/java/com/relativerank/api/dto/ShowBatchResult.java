@@ -0,0 +1,3 @@
+package com.relativerank.api.dto;
+
+public record ShowBatchResult(String id, String name, String status) {}
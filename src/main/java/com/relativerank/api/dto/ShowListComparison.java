@@ -0,0 +1,10 @@
+package com.relativerank.api.dto;
+
+import java.util.List;
+
+public record ShowListComparison(String usernameA,
+                                 String usernameB,
+                                 int sharedShows,
+                                 double kendallTau,
+                                 double spearman,
+                                 List<ShowRankDisagreement> disagreements) {}
@@ -0,0 +1,11 @@
+package com.relativerank.api.dto;
+
+/**
+ * A single edit to a show list. Indexes are zero based positions in the list at the time the operation is applied.
+ * <ul>
+ *     <li>insert: adds {@code name} at {@code index}</li>
+ *     <li>remove: removes the show at {@code index}</li>
+ *     <li>move: moves the show at {@code from} to {@code to}</li>
+ * </ul>
+ */
+public record ShowListOperation(String op, String name, Integer index, Integer from, Integer to) {}
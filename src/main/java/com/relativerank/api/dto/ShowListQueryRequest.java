@@ -0,0 +1,5 @@
+package com.relativerank.api.dto;
+
+import java.util.List;
+
+public record ShowListQueryRequest(List<String> usernames, Integer limit) {}
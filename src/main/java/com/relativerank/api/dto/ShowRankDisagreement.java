@@ -0,0 +1,3 @@
+package com.relativerank.api.dto;
+
+public record ShowRankDisagreement(String name, int rankA, int rankB) {}
@@ -0,0 +1,6 @@
+package com.relativerank.api.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record ShowResolveResponse(Map<String, String> resolved, List<String> unresolved) {}
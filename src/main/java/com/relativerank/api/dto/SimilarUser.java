@@ -0,0 +1,3 @@
+package com.relativerank.api.dto;
+
+public record SimilarUser(String username, double similarity, int sharedShows) {}
@@ -0,0 +1,321 @@
+package com.relativerank.api.repositories;
+
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.db.ShowListChunk;
+import com.relativerank.api.db.ShowListHeader;
+import com.relativerank.api.db.ShowListSlice;
+import com.relativerank.api.util.VersionConflictException;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+import reactor.util.retry.Retry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stores each show list as a {@link ShowListHeader} plus fixed size {@link ShowListChunk} documents.
+ * <p>
+ * Writes are copy on write: chunks whose contents changed are inserted under the new version, then the header is
+ * swapped to point at them with a compare and set on its version, and only then are the superseded chunks removed.
+ * A failed write leaves at most unreferenced chunks behind. A reader that loaded a header just before such a swap can
+ * find some of its chunks already removed, so reads check that every chunk the header names was found and otherwise
+ * start over from the current header.
+ * <p>
+ * Chunks are positional, chunk {@code i} holding entries {@code i * chunk-size} onwards. A move within one chunk
+ * rewrites only that chunk, but an insert or remove shifts every later entry and so rewrites every chunk after the
+ * edit. Edits near the bottom of long lists are cheap, edits near the top cost about as much as the single document
+ * layout.
+ * <p>
+ * Lists still stored as a single {@link ShowList} document are read as is and converted on their first write, which
+ * removes the document once the header is in place.
+ */
+@Component
+@ConditionalOnProperty(name = "show-lists.storage", havingValue = "chunked")
+public class ChunkedShowListStore implements ShowListStore {
+
+    private final ShowListRepository showListRepository;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private final int chunkSize;
+
+    public ChunkedShowListStore(ShowListRepository showListRepository,
+                                ReactiveMongoTemplate reactiveMongoTemplate,
+                                @Value("${show-lists.chunk-size:500}") int chunkSize) {
+        this.showListRepository = showListRepository;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Mono<ShowList> findByUsername(String username) {
+        return readCurrentShowList(username)
+                .switchIfEmpty(Mono.defer(() -> showListRepository.findByUsername(username)))
+                // the list may have been converted between looking for its header and for its document
+                .switchIfEmpty(Mono.defer(() -> readCurrentShowList(username)));
+    }
+
+    @Override
+    public Flux<ShowList> findAll() {
+        Set<String> chunkedUsernames = ConcurrentHashMap.newKeySet();
+        var chunkedShowLists = reactiveMongoTemplate.findAll(ShowListHeader.class)
+                .doOnNext(header -> chunkedUsernames.add(header.username()))
+                .flatMap(header -> readShowList(header).onErrorResume(SupersededChunksException.class,
+                        error -> readCurrentShowList(header.username())), 8);
+        var documentShowLists = Flux.defer(() -> showListRepository.findAll()
+                .filter(showList -> !chunkedUsernames.contains(showList.username())));
+
+        return chunkedShowLists.concatWith(documentShowLists);
+    }
+
+    @Override
+    public Flux<ShowListSlice> findSlicesByUsernames(Collection<String> usernames, Integer limit) {
+        var headerSlices = Mono.defer(() -> reactiveMongoTemplate
+                .find(Query.query(Criteria.where("username").in(usernames)), ShowListHeader.class)
+                .collectList()
+                .flatMap(headers -> readSlices(headers, limit).map(slices -> Tuples.of(headers, slices))))
+                .retryWhen(SupersededChunksException.RETRY);
+
+        return headerSlices.flatMapMany(headersAndSlices -> {
+            var headers = headersAndSlices.getT1();
+            var chunkedUsernames = headers.stream().map(ShowListHeader::username).collect(Collectors.toSet());
+            var documentUsernames = usernames.stream()
+                    .filter(username -> !chunkedUsernames.contains(username))
+                    .toList();
+            var documentSlices = documentUsernames.isEmpty()
+                    ? Flux.<ShowListSlice>empty()
+                    : DocumentShowListStore.findDocumentSlices(reactiveMongoTemplate, documentUsernames, limit);
+
+            return Flux.fromIterable(headersAndSlices.getT2()).concatWith(documentSlices);
+        });
+    }
+
+    /**
+     * Reads only the leading chunks each slice needs, for all headers in one query.
+     */
+    private Mono<List<ShowListSlice>> readSlices(List<ShowListHeader> headers, Integer limit) {
+        var neededChunkIds = new ArrayList<List<String>>(headers.size());
+        var allNeededChunkIds = new ArrayList<String>();
+        for (var header : headers) {
+            var chunkCount = limit != null
+                    ? Math.min(header.chunkIds().size(), (limit + chunkSize - 1) / chunkSize)
+                    : header.chunkIds().size();
+            var chunkIds = header.chunkIds().subList(0, chunkCount);
+            neededChunkIds.add(chunkIds);
+            allNeededChunkIds.addAll(chunkIds);
+        }
+
+        var showNamesByChunkId = allNeededChunkIds.isEmpty()
+                ? Mono.just(Map.<String, List<String>>of())
+                : reactiveMongoTemplate.find(Query.query(Criteria.where("id").in(allNeededChunkIds)), ShowListChunk.class)
+                        .collectMap(ShowListChunk::id, ShowListChunk::showNames);
+
+        return showNamesByChunkId.flatMap(showNames -> {
+            if (showNames.size() != allNeededChunkIds.size()) {
+                return Mono.error(new SupersededChunksException());
+            }
+
+            var slices = new ArrayList<ShowListSlice>(headers.size());
+            for (var i = 0; i < headers.size(); i++) {
+                var header = headers.get(i);
+                var sliceShowNames = new ArrayList<String>();
+                for (var chunkId : neededChunkIds.get(i)) {
+                    sliceShowNames.addAll(showNames.get(chunkId));
+                }
+
+                var sliceSize = limit != null ? Math.min(limit, sliceShowNames.size()) : sliceShowNames.size();
+                slices.add(new ShowListSlice(header.username(),
+                        header.version(),
+                        header.size(),
+                        ShowList.rankShowNames(sliceShowNames.subList(0, sliceSize), header.size())));
+            }
+
+            return Mono.just(slices);
+        });
+    }
+
+    @Override
+    public Mono<ShowList> replace(String username, List<RankedShow> showList, Long expectedVersion) {
+        // only names are stored, so without this a list with wrong ranks would be silently re-ranked
+        try {
+            ShowList.validateShowList(showList);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+
+        var showNames = new ArrayList<String>(showList.size());
+        for (var rankedShow : showList) {
+            showNames.add(rankedShow.name());
+        }
+
+        var replacedShowList = Mono.defer(() -> findHeader(username)
+                .switchIfEmpty(Mono.defer(() -> convertDocumentShowList(username)))
+                .flatMap(header -> {
+                    if (expectedVersion != null && expectedVersion.longValue() != header.version()) {
+                        return Mono.error(new VersionConflictException(
+                                "show list for " + username + " is not at version " + expectedVersion));
+                    }
+
+                    return readChunks(header)
+                            // the header was swapped after it was read, so this write has already lost the race
+                            .onErrorMap(SupersededChunksException.class, error -> new VersionConflictException(
+                                    "show list for " + username + " is not at version " + header.version()))
+                            .flatMap(existingChunks -> writeChunks(header, existingChunks, showNames));
+                }));
+
+        // an unconditional write that loses a race to another write just goes again on top of it
+        return expectedVersion != null
+                ? replacedShowList
+                : replacedShowList.retryWhen(Retry.max(3).filter(VersionConflictException.class::isInstance));
+    }
+
+    private Mono<ShowList> writeChunks(ShowListHeader header, List<ShowListChunk> existingChunks, List<String> showNames) {
+        var username = header.username();
+        var newChunkNames = chunk(showNames, chunkSize);
+
+        var chunkIds = new ArrayList<String>(newChunkNames.size());
+        var chunksToWrite = new ArrayList<ShowListChunk>();
+        for (var i = 0; i < newChunkNames.size(); i++) {
+            if (i < existingChunks.size() && existingChunks.get(i).showNames().equals(newChunkNames.get(i))) {
+                chunkIds.add(existingChunks.get(i).id());
+            } else {
+                // every write gets fresh chunk ids so racing writers can never touch each other's chunks
+                var chunk = new ShowListChunk(new ObjectId().toHexString(), username, i, newChunkNames.get(i));
+                chunkIds.add(chunk.id());
+                chunksToWrite.add(chunk);
+            }
+        }
+
+        var writtenChunkIds = chunksToWrite.stream().map(ShowListChunk::id).toList();
+        var referencedChunkIds = new HashSet<>(chunkIds);
+        var supersededChunkIds = existingChunks.stream()
+                .map(ShowListChunk::id)
+                .filter(chunkId -> !referencedChunkIds.contains(chunkId))
+                .toList();
+
+        var headerSwap = reactiveMongoTemplate.findAndModify(
+                Query.query(Criteria.where("username").is(username).and("version").is(header.version())),
+                new Update().inc("version", 1).set("size", showNames.size()).set("chunkIds", chunkIds),
+                FindAndModifyOptions.options().returnNew(true),
+                ShowListHeader.class);
+
+        return insertChunks(chunksToWrite)
+                .then(headerSwap)
+                .switchIfEmpty(Mono.defer(() -> removeChunks(writtenChunkIds).then(Mono.<ShowListHeader>error(
+                        new VersionConflictException("show list for " + username + " is not at version " + header.version())))))
+                .flatMap(swappedHeader -> removeChunks(supersededChunkIds)
+                        .thenReturn(new ShowList(
+                                swappedHeader.id(), username, ShowList.rankShowNames(showNames), swappedHeader.version())));
+    }
+
+    private Mono<ShowListHeader> convertDocumentShowList(String username) {
+        return showListRepository.findByUsername(username).flatMap(documentShowList -> {
+            var showNames = documentShowList.showList().stream().map(RankedShow::name).toList();
+            var chunkNames = chunk(showNames, chunkSize);
+
+            var chunks = new ArrayList<ShowListChunk>(chunkNames.size());
+            for (var i = 0; i < chunkNames.size(); i++) {
+                chunks.add(new ShowListChunk(new ObjectId().toHexString(), username, i, chunkNames.get(i)));
+            }
+
+            var header = new ShowListHeader(documentShowList.id(),
+                    username,
+                    documentShowList.versionOrZero(),
+                    showNames.size(),
+                    chunks.stream().map(ShowListChunk::id).toList());
+            return insertChunks(chunks)
+                    .then(reactiveMongoTemplate.insert(header))
+                    // readers look for the header first, so the document can go once the header is in place
+                    .flatMap(insertedHeader -> showListRepository.delete(documentShowList).thenReturn(insertedHeader))
+                    // another write converted the list first, going again will pick up its header
+                    .onErrorResume(DuplicateKeyException.class, error -> removeChunks(header.chunkIds())
+                            .then(Mono.<ShowListHeader>error(new VersionConflictException(
+                                    "show list for " + username + " was converted concurrently"))));
+        });
+    }
+
+    private Mono<ShowListHeader> findHeader(String username) {
+        return reactiveMongoTemplate.findOne(Query.query(Criteria.where("username").is(username)), ShowListHeader.class);
+    }
+
+    /**
+     * Reads the list under the current header, starting over when a write removes chunks while it is being read.
+     */
+    private Mono<ShowList> readCurrentShowList(String username) {
+        return Mono.defer(() -> findHeader(username).flatMap(this::readShowList))
+                .retryWhen(SupersededChunksException.RETRY);
+    }
+
+    private Mono<ShowList> readShowList(ShowListHeader header) {
+        return readChunks(header).map(chunks -> {
+            var showNames = new ArrayList<String>(header.size());
+            for (var chunk : chunks) {
+                showNames.addAll(chunk.showNames());
+            }
+
+            return new ShowList(header.id(), header.username(), ShowList.rankShowNames(showNames), header.version());
+        });
+    }
+
+    private Mono<List<ShowListChunk>> readChunks(ShowListHeader header) {
+        if (header.chunkIds().isEmpty()) {
+            return Mono.just(List.of());
+        }
+
+        return reactiveMongoTemplate.find(Query.query(Criteria.where("id").in(header.chunkIds())), ShowListChunk.class)
+                .collectSortedList(Comparator.comparingInt(ShowListChunk::index))
+                .flatMap(chunks -> chunks.size() == header.chunkIds().size()
+                        ? Mono.just(chunks)
+                        : Mono.error(new SupersededChunksException()));
+    }
+
+    private Mono<Void> insertChunks(List<ShowListChunk> chunks) {
+        return chunks.isEmpty() ? Mono.empty() : reactiveMongoTemplate.insertAll(chunks).then();
+    }
+
+    private Mono<Void> removeChunks(List<String> chunkIds) {
+        return chunkIds.isEmpty()
+                ? Mono.empty()
+                : reactiveMongoTemplate.remove(Query.query(Criteria.where("id").in(chunkIds)), ShowListChunk.class).then();
+    }
+
+    /**
+     * Some chunks named by a header were removed by a write that swapped the header after it was read.
+     */
+    private static class SupersededChunksException extends RuntimeException {
+
+        static final Retry RETRY = Retry.max(5).filter(SupersededChunksException.class::isInstance);
+
+        SupersededChunksException() {
+            super("show list chunks were superseded while being read", null, false, false);
+        }
+    }
+
+    static List<List<String>> chunk(List<String> showNames, int chunkSize) {
+        var chunks = new ArrayList<List<String>>((showNames.size() + chunkSize - 1) / chunkSize);
+        for (var start = 0; start < showNames.size(); start += chunkSize) {
+            chunks.add(List.copyOf(showNames.subList(start, Math.min(start + chunkSize, showNames.size()))));
+        }
+
+        return chunks;
+    }
+}
@@ -0,0 +1,96 @@
+package com.relativerank.api.repositories;
+
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.db.ShowListSlice;
+import com.relativerank.api.util.VersionConflictException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stores each show list as a single {@link ShowList} document.
+ */
+@Component
+@ConditionalOnProperty(name = "show-lists.storage", havingValue = "document", matchIfMissing = true)
+public record DocumentShowListStore(ShowListRepository showListRepository,
+                                    ReactiveMongoTemplate reactiveMongoTemplate) implements ShowListStore {
+
+    @Override
+    public Mono<ShowList> findByUsername(String username) {
+        return showListRepository.findByUsername(username);
+    }
+
+    @Override
+    public Flux<ShowList> findAll() {
+        return showListRepository.findAll();
+    }
+
+    @Override
+    public Flux<ShowListSlice> findSlicesByUsernames(Collection<String> usernames, Integer limit) {
+        return findDocumentSlices(reactiveMongoTemplate, usernames, limit);
+    }
+
+    /**
+     * Reads the lists of {@code usernames} with a single {@code $in} match, slicing them in Mongo so only the
+     * requested entries are sent over the wire.
+     */
+    static Flux<ShowListSlice> findDocumentSlices(ReactiveMongoTemplate reactiveMongoTemplate,
+                                                  Collection<String> usernames,
+                                                  Integer limit) {
+        var projection = Aggregation.project("username", "version")
+                .and(ArrayOperators.Size.lengthOfArray("showList")).as("size");
+        projection = limit != null
+                ? projection.and(ArrayOperators.Slice.sliceArrayOf("showList").itemCount(limit)).as("showList")
+                : projection.andInclude("showList");
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("username").in(usernames)),
+                projection);
+
+        return reactiveMongoTemplate.aggregate(aggregation, ShowList.class, ShowListSlice.class);
+    }
+
+    @Override
+    public Mono<ShowList> replace(String username, List<RankedShow> showList, Long expectedVersion) {
+        return Mono.fromRunnable(() -> ShowList.validateShowList(showList))
+                .then(Mono.defer(() -> replaceValidated(username, showList, expectedVersion)));
+    }
+
+    private Mono<ShowList> replaceValidated(String username, List<RankedShow> showList, Long expectedVersion) {
+        var criteria = Criteria.where("username").is(username);
+        if (expectedVersion != null) {
+            criteria = expectedVersion == 0
+                    // lists written before versioning have no version field
+                    ? criteria.orOperator(Criteria.where("version").is(0L), Criteria.where("version").is(null))
+                    : criteria.and("version").is(expectedVersion);
+        }
+
+        var savedShowList = reactiveMongoTemplate.findAndModify(
+                Query.query(criteria),
+                new Update().set("showList", showList).inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                ShowList.class);
+
+        if (expectedVersion == null) {
+            return savedShowList;
+        }
+
+        return savedShowList.switchIfEmpty(reactiveMongoTemplate
+                .exists(Query.query(Criteria.where("username").is(username)), ShowList.class)
+                .flatMap(showListExists -> showListExists
+                        ? Mono.error(new VersionConflictException(
+                                "show list for " + username + " is not at version " + expectedVersion))
+                        : Mono.empty()));
+    }
+}
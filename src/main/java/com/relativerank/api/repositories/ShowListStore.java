@@ -0,0 +1,34 @@
+package com.relativerank.api.repositories;
+
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.db.ShowListSlice;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage of show lists independent of their layout in Mongo, selected with {@code show-lists.storage}.
+ */
+public interface ShowListStore {
+
+    Mono<ShowList> findByUsername(String username);
+
+    Flux<ShowList> findAll();
+
+    /**
+     * Streams the lists of every user in {@code usernames} that has one, in no particular order. When {@code limit}
+     * is given only the top {@code limit} entries of each list are returned.
+     */
+    Flux<ShowListSlice> findSlicesByUsernames(Collection<String> usernames, Integer limit);
+
+    /**
+     * Replaces the list for {@code username} and increments its version. Completes empty when the user has no show
+     * list, errors with an {@link IllegalArgumentException} without writing when {@code showList} is not ranked
+     * consecutively, and with a {@link com.relativerank.api.util.VersionConflictException} when
+     * {@code expectedVersion} is given and does not match.
+     */
+    Mono<ShowList> replace(String username, List<RankedShow> showList, Long expectedVersion);
+}
@@ -1,9 +1,13 @@
 package com.relativerank.api.routes;
 
 import com.relativerank.api.routes.handlers.GlobalRankedShowListRouteHandlers;
+import com.relativerank.api.routes.handlers.ImportRouteHandlers;
+import com.relativerank.api.routes.handlers.RecommendationRouteHandlers;
 import com.relativerank.api.routes.handlers.ShowListRouteHandlers;
 import com.relativerank.api.routes.handlers.ShowRouteHandlers;
 import com.relativerank.api.routes.handlers.UserRouteHandlers;
+import com.relativerank.api.util.ContentNegotiation;
+import com.relativerank.api.util.ServerTiming;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.server.RouterFunction;
@@ -17,7 +21,9 @@ public class Routes {
     RouterFunction<ServerResponse> apiRoutes(UserRouteHandlers userRouteHandlers,
                                              ShowRouteHandlers showRouteHandlers,
                                              ShowListRouteHandlers showListRouteHandlers,
-                                             GlobalRankedShowListRouteHandlers globalRankedShowListRouteHandlers) {
+                                             GlobalRankedShowListRouteHandlers globalRankedShowListRouteHandlers,
+                                             RecommendationRouteHandlers recommendationRouteHandlers,
+                                             ImportRouteHandlers importRouteHandlers) {
         return RouterFunctions.route()
                 .POST("/login", userRouteHandlers::login)
                 .POST("/users", userRouteHandlers::createUser)
@@ -26,12 +32,30 @@ public class Routes {
                 .GET("/shows", showRouteHandlers::getAllShows)
                 .GET("/shows/{id}", showRouteHandlers::getShow)
                 .POST("/shows", showRouteHandlers::createShow)
+                .POST("/shows/batch", showRouteHandlers::batchUpsertShows)
+                .POST("/shows/resolve", showRouteHandlers::resolveShowNames)
                 .PUT("/shows/{id}", showRouteHandlers::upsertShow)
                 .DELETE("/shows/{id}", showRouteHandlers::deleteShow)
-                .GET("/import-from-mal", showRouteHandlers::importFromMal)
-                .GET("show-lists/{username}", showListRouteHandlers::getShowList)
-                .PUT("show-lists/{username}", showListRouteHandlers::upsertShowList)
-                .GET("/global-ranked-show-list/{page}", globalRankedShowListRouteHandlers::getGlobalRankedShowList)
+                .POST("/imports", importRouteHandlers::createImport)
+                .GET("/imports/{id}", importRouteHandlers::getImport)
+                // routes whose responses are negotiated, refused up front when no supported format is accepted
+                .add(RouterFunctions.route()
+                        .GET("/import-from-mal", showRouteHandlers::importFromMal)
+                        .GET("show-lists", showListRouteHandlers::getShowLists)
+                        .POST("show-lists/query", showListRouteHandlers::queryShowLists)
+                        // registered ahead of show-lists/{username} so compare is not taken as a username
+                        .GET("show-lists/compare", showListRouteHandlers::compareShowLists)
+                        .GET("show-lists/{username}", showListRouteHandlers::getShowList)
+                        .PUT("show-lists/{username}", showListRouteHandlers::upsertShowList)
+                        .PATCH("show-lists/{username}", showListRouteHandlers::patchShowList)
+                        .GET("show-lists/{username}/similar", showListRouteHandlers::getSimilarUsers)
+                        .PUT("show-lists/{username}/compact", showListRouteHandlers::upsertCompactShowList)
+                        .GET("/global-ranked-show-list/{page}",
+                                globalRankedShowListRouteHandlers::getGlobalRankedShowList)
+                        .GET("/recommendations/{username}", recommendationRouteHandlers::getRecommendations)
+                        .filter(ContentNegotiation::requireAcceptable)
+                        .build())
+                .filter(ServerTiming::markHandled)
                 .build();
     }
 }
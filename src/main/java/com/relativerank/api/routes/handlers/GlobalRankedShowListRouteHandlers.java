@@ -2,6 +2,8 @@ package com.relativerank.api.routes.handlers;
 
 import com.relativerank.api.dto.ProblemDetails;
 import com.relativerank.api.repositories.GlobalRankedShowListRepository;
+import com.relativerank.api.util.ContentNegotiation;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
@@ -21,6 +23,8 @@ public record GlobalRankedShowListRouteHandlers(GlobalRankedShowListRepository g
         return globalRankedShowListRepository
                 .findById(page)
                 .flatMap(globalRankedShowList -> ServerResponse.ok()
+                        .contentType(ContentNegotiation.negotiate(serverRequest))
+                        .varyBy(HttpHeaders.ACCEPT)
                         .body(BodyInserters.fromValue(globalRankedShowList)))
                 .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND)
                         .contentType(MediaType.APPLICATION_PROBLEM_JSON)
@@ -0,0 +1,80 @@
+package com.relativerank.api.routes.handlers;
+
+import com.relativerank.api.dto.ImportRequest;
+import com.relativerank.api.dto.ProblemDetails;
+import com.relativerank.api.util.Constants;
+import com.relativerank.api.util.ImportJobService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+@Component
+public record ImportRouteHandlers(ImportJobService importJobService) {
+
+    @NonNull
+    public Mono<ServerResponse> createImport(ServerRequest serverRequest) {
+        return authenticatedUsername(serverRequest).flatMap(username -> serverRequest
+                .body(BodyExtractors.toMono(ImportRequest.class))
+                .flatMap(importRequest -> {
+                    if (importRequest.malUsername() == null) {
+                        return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("malUsername is required");
+                    }
+
+                    var mode = importRequest.mode() != null ? importRequest.mode() : "replace";
+                    if (!mode.equals("replace") && !mode.equals("merge")) {
+                        return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("mode must be replace or merge");
+                    }
+
+                    var job = importJobService.submit(username, importRequest.malUsername(), mode);
+                    if (job == null) {
+                        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "30")
+                                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                                .body(BodyInserters.fromValue(new ProblemDetails(
+                                        "service unavailable",
+                                        "503",
+                                        "too many imports are queued, try again later")));
+                    }
+
+                    return ServerResponse.accepted()
+                            .location(URI.create("/imports/" + job.id()))
+                            .body(BodyInserters.fromValue(job));
+                }));
+    }
+
+    @NonNull
+    public Mono<ServerResponse> getImport(ServerRequest serverRequest) {
+        var id = serverRequest.pathVariable("id");
+
+        return authenticatedUsername(serverRequest).flatMap(username -> {
+            var job = importJobService.find(id);
+            // other users' jobs are reported as missing rather than forbidden so job ids cannot be probed
+            if (job == null || !job.username().equals(username)) {
+                return ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .body(BodyInserters.fromValue(new ProblemDetails(
+                                "not found",
+                                "404",
+                                "import job does not exist")));
+            }
+
+            return ServerResponse.ok().body(BodyInserters.fromValue(job));
+        });
+    }
+
+    private static Mono<String> authenticatedUsername(ServerRequest serverRequest) {
+        return serverRequest.principal()
+                .cast(Authentication.class)
+                .map(authentication -> (String) authentication.getPrincipal());
+    }
+}
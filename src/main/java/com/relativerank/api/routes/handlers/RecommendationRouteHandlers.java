@@ -0,0 +1,50 @@
+package com.relativerank.api.routes.handlers;
+
+import com.relativerank.api.dto.ProblemDetails;
+import com.relativerank.api.repositories.ShowListStore;
+import com.relativerank.api.util.Constants;
+import com.relativerank.api.util.ContentNegotiation;
+import com.relativerank.api.util.ShowRecommendationIndex;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+@Component
+public record RecommendationRouteHandlers(ShowListStore showListStore,
+                                          ShowRecommendationIndex showRecommendationIndex) {
+
+    @NonNull
+    public Mono<ServerResponse> getRecommendations(ServerRequest serverRequest) {
+        var username = serverRequest.pathVariable("username");
+
+        int limit;
+        try {
+            limit = serverRequest.queryParam("limit").map(Integer::parseInt).orElse(20);
+        } catch (NumberFormatException e) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("Query parameter limit must be a number");
+        }
+
+        if (limit < 1 || limit > Constants.MAX_RECOMMENDATIONS) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply(
+                    "limit must be between 1 and " + Constants.MAX_RECOMMENDATIONS);
+        }
+
+        return showListStore.findByUsername(username)
+                .flatMap(showList -> ServerResponse.ok()
+                        .contentType(ContentNegotiation.negotiate(serverRequest))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(BodyInserters.fromValue(showRecommendationIndex.recommend(showList.showList(), limit))))
+                .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .body(BodyInserters.fromValue(new ProblemDetails(
+                                "not found",
+                                "404",
+                                "show list does not exist for provided username"))));
+    }
+}
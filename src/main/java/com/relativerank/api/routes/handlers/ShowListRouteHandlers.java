@@ -1,11 +1,26 @@
 package com.relativerank.api.routes.handlers;
 
 import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.Show;
 import com.relativerank.api.db.ShowList;
+import com.relativerank.api.db.ShowListSlice;
 import com.relativerank.api.dto.ProblemDetails;
-import com.relativerank.api.repositories.ShowListRepository;
+import com.relativerank.api.dto.ShowListComparison;
+import com.relativerank.api.dto.ShowListOperation;
+import com.relativerank.api.dto.ShowListQueryRequest;
+import com.relativerank.api.dto.ShowRankDisagreement;
+import com.relativerank.api.repositories.ShowListStore;
 import com.relativerank.api.repositories.UserRepository;
+import com.relativerank.api.util.Constants;
+import com.relativerank.api.util.ContentNegotiation;
+import com.relativerank.api.util.RankCorrelation;
+import com.relativerank.api.util.SimilarTasteIndex;
+import com.relativerank.api.util.VersionConflictException;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
@@ -15,18 +30,29 @@ import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 @Component
-public record ShowListRouteHandlers(ShowListRepository showListRepository, UserRepository userRepository) {
+public record ShowListRouteHandlers(ShowListStore showListStore,
+                                    UserRepository userRepository,
+                                    ReactiveMongoTemplate reactiveMongoTemplate,
+                                    SimilarTasteIndex similarTasteIndex) {
 
     @NonNull
     public Mono<ServerResponse> getShowList(ServerRequest serverRequest) {
         var username = serverRequest.pathVariable("username");
 
-        return showListRepository.findByUsername(username)
-                .flatMap(showList -> ServerResponse.ok().body(BodyInserters.fromValue(showList)))
+        return showListStore.findByUsername(username)
+                .flatMap(showList -> ServerResponse.ok()
+                        .contentType(ContentNegotiation.negotiate(serverRequest))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .eTag(Long.toString(showList.versionOrZero()))
+                        .body(BodyInserters.fromValue(showList)))
                 .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND)
                         .contentType(MediaType.APPLICATION_PROBLEM_JSON)
                         .body(BodyInserters.fromValue(new ProblemDetails(
@@ -35,22 +61,239 @@ public record ShowListRouteHandlers(ShowListRepository showListRepository, UserR
                                 "show list does not exist for provided username"))));
     }
 
+    @NonNull
+    public Mono<ServerResponse> compareShowLists(ServerRequest serverRequest) {
+        var usernameA = serverRequest.queryParam("a").orElse(null);
+        var usernameB = serverRequest.queryParam("b").orElse(null);
+        if (usernameA == null || usernameB == null) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("Query parameters a and b are required");
+        }
+
+        return Mono.zip(showListStore.findByUsername(usernameA), showListStore.findByUsername(usernameB))
+                .flatMap(showLists -> {
+                    var sharedRanks = RankCorrelation.sharedRanks(
+                            showLists.getT1().showList().stream().map(RankedShow::name).toList(),
+                            showLists.getT2().showList().stream().map(RankedShow::name).toList());
+
+                    var disagreements = new ArrayList<ShowRankDisagreement>();
+                    for (var i : RankCorrelation.largestDisagreements(sharedRanks, Constants.MAX_COMPARISON_DISAGREEMENTS)) {
+                        disagreements.add(new ShowRankDisagreement(sharedRanks.names().get(i),
+                                sharedRanks.ranksA()[i],
+                                sharedRanks.ranksB()[i]));
+                    }
+
+                    return ServerResponse.ok()
+                            .contentType(ContentNegotiation.negotiate(serverRequest))
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .body(BodyInserters.fromValue(new ShowListComparison(usernameA,
+                                    usernameB,
+                                    sharedRanks.size(),
+                                    RankCorrelation.kendallTau(sharedRanks),
+                                    RankCorrelation.spearman(sharedRanks),
+                                    disagreements)));
+                })
+                .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .body(BodyInserters.fromValue(new ProblemDetails(
+                                "not found",
+                                "404",
+                                "show list does not exist for both provided usernames"))));
+    }
+
+    @NonNull
+    public Mono<ServerResponse> getSimilarUsers(ServerRequest serverRequest) {
+        var username = serverRequest.pathVariable("username");
+
+        int limit;
+        try {
+            limit = serverRequest.queryParam("limit").map(Integer::parseInt).orElse(20);
+        } catch (NumberFormatException e) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("Query parameter limit must be a number");
+        }
+
+        if (limit < 1 || limit > Constants.MAX_SIMILAR_USERS) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply(
+                    "limit must be between 1 and " + Constants.MAX_SIMILAR_USERS);
+        }
+
+        // users not seen since the last refresh are indexed on first lookup
+        var showListIndexed = similarTasteIndex.contains(username)
+                ? Mono.just(true)
+                : showListStore.findByUsername(username).doOnNext(similarTasteIndex::index).hasElement();
+
+        return showListIndexed.flatMap(indexed -> indexed
+                ? ServerResponse.ok()
+                        .contentType(ContentNegotiation.negotiate(serverRequest))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(BodyInserters.fromValue(similarTasteIndex.findSimilar(username, limit)))
+                : ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .body(BodyInserters.fromValue(new ProblemDetails(
+                                "not found",
+                                "404",
+                                "show list does not exist for provided username"))));
+    }
+
+    @NonNull
+    public Mono<ServerResponse> getShowLists(ServerRequest serverRequest) {
+        var usernames = new ArrayList<String>();
+        for (var usernamesParam : serverRequest.queryParams().getOrDefault("usernames", List.of())) {
+            for (var username : usernamesParam.split(",")) {
+                if (!username.isBlank()) {
+                    usernames.add(username.trim());
+                }
+            }
+        }
+
+        Integer limit;
+        try {
+            limit = serverRequest.queryParam("limit").map(Integer::valueOf).orElse(null);
+        } catch (NumberFormatException e) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("Query parameter limit must be a number");
+        }
+
+        return showListSlicesResponse(serverRequest, usernames, limit);
+    }
+
+    @NonNull
+    public Mono<ServerResponse> queryShowLists(ServerRequest serverRequest) {
+        return serverRequest.body(BodyExtractors.toMono(ShowListQueryRequest.class))
+                .flatMap(query -> showListSlicesResponse(serverRequest,
+                        query.usernames() != null ? query.usernames() : List.of(),
+                        query.limit()));
+    }
+
+    private Mono<ServerResponse> showListSlicesResponse(ServerRequest serverRequest, List<String> usernames, Integer limit) {
+        if (usernames.isEmpty()) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("at least one username is required");
+        }
+
+        var distinctUsernames = new LinkedHashSet<>(usernames);
+        if (distinctUsernames.size() > Constants.MAX_SHOW_LIST_BATCH_SIZE) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply(
+                    "cannot fetch more than " + Constants.MAX_SHOW_LIST_BATCH_SIZE + " show lists at once");
+        }
+
+        if (limit != null && limit < 1) {
+            return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("limit must be at least 1");
+        }
+
+        return ServerResponse.ok()
+                .contentType(ContentNegotiation.negotiate(serverRequest))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(BodyInserters.fromPublisher(
+                        showListStore.findSlicesByUsernames(distinctUsernames, limit), ShowListSlice.class));
+    }
+
     @NonNull
     public Mono<ServerResponse> upsertShowList(ServerRequest serverRequest) {
         var username = serverRequest.pathVariable("username");
         var updatedShowList = serverRequest.body(BodyExtractors.toMono(
                 new ParameterizedTypeReference<List<RankedShow>>() {}));
 
-        return updatedShowList.flatMap(showList -> Mono.zip(showListRepository.findByUsername(username), Mono.just(showList)))
-                .flatMap(tuple -> showListRepository.save(new ShowList(
-                        tuple.getT1().id(), tuple.getT1().username(), tuple.getT2())))
-                .flatMap(savedShowList -> ServerResponse.ok().body(BodyInserters.fromValue(savedShowList)))
+        return showListWriteResponse(serverRequest, username, updatedShowList
+                .flatMap(showList -> {
+                    // checked before writing, a list that fails here must never reach the store
+                    ShowList.validateShowList(showList);
+                    return showListStore.replace(username, showList, ifMatchVersion(serverRequest));
+                }));
+    }
+
+    @NonNull
+    public Mono<ServerResponse> upsertCompactShowList(ServerRequest serverRequest) {
+        var username = serverRequest.pathVariable("username");
+        var showNamesOrIds = serverRequest.body(BodyExtractors.toMono(new ParameterizedTypeReference<List<String>>() {}));
+
+        return showListWriteResponse(serverRequest, username, showNamesOrIds.flatMap(entries -> reactiveMongoTemplate
+                .find(Query.query(Criteria.where("id").in(entries)), Show.class)
+                .collectMap(Show::id, Show::name)
+                .map(showNamesById -> {
+                    var showNames = new ArrayList<String>(entries.size());
+                    var distinctShowNames = new HashSet<String>();
+                    for (var i = 0; i < entries.size(); i++) {
+                        var entry = entries.get(i);
+                        if (entry == null) {
+                            throw new IllegalArgumentException("show at index: " + i + " cannot be null");
+                        }
+
+                        var showName = showNamesById.getOrDefault(entry, entry);
+                        if (!distinctShowNames.add(showName)) {
+                            throw new IllegalArgumentException("show at index: " + i + " is already in the show list");
+                        }
+                        showNames.add(showName);
+                    }
+
+                    return ShowList.rankShowNames(showNames);
+                })
+                .flatMap(showList -> showListStore.replace(username, showList, ifMatchVersion(serverRequest)))));
+    }
+
+    @NonNull
+    public Mono<ServerResponse> patchShowList(ServerRequest serverRequest) {
+        var username = serverRequest.pathVariable("username");
+        // cached so a retry after a concurrent write re-applies the operations without re-reading the body
+        var operations = serverRequest.body(BodyExtractors.toMono(
+                new ParameterizedTypeReference<List<ShowListOperation>>() {}))
+                .cache();
+
+        return showListWriteResponse(serverRequest, username, Mono.defer(() -> {
+            var ifMatchVersion = ifMatchVersion(serverRequest);
+            var patchedShowList = operations.flatMap(showListOperations -> showListStore.findByUsername(username)
+                    .flatMap(existingShowList -> {
+                        if (ifMatchVersion != null && ifMatchVersion != existingShowList.versionOrZero()) {
+                            return Mono.error(new VersionConflictException(
+                                    "show list for " + username + " is not at version " + ifMatchVersion));
+                        }
+
+                        var patchedRankedShows = ShowList.applyOperations(existingShowList.showList(), showListOperations);
+                        return showListStore.replace(username, patchedRankedShows, existingShowList.versionOrZero());
+                    }));
+
+            // without If-Match the client asked for its edit on whatever is current, so losing a race to another
+            // write just means re-reading and applying the operations again
+            return ifMatchVersion != null
+                    ? patchedShowList
+                    : patchedShowList.retryWhen(Retry.max(3).filter(VersionConflictException.class::isInstance));
+        }));
+    }
+
+    private static Long ifMatchVersion(ServerRequest serverRequest) {
+        var ifMatch = serverRequest.headers().firstHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null || ifMatch.equals("*")) {
+            return null;
+        }
+
+        var version = ifMatch.startsWith("W/") ? ifMatch.substring(2) : ifMatch;
+        version = version.replace("\"", "");
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be a show list version");
+        }
+    }
+
+    private Mono<ServerResponse> showListWriteResponse(ServerRequest serverRequest,
+                                                       String username,
+                                                       Mono<ShowList> savedShowListMono) {
+        return savedShowListMono
+                .doOnNext(similarTasteIndex::index)
+                .flatMap(savedShowList -> ServerResponse.ok()
+                        .contentType(ContentNegotiation.negotiate(serverRequest))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .eTag(Long.toString(savedShowList.versionOrZero()))
+                        .body(BodyInserters.fromValue(savedShowList)))
                 .onErrorResume(IllegalArgumentException.class, error -> ServerResponse.badRequest()
                         .contentType(MediaType.APPLICATION_PROBLEM_JSON)
                         .body(BodyInserters.fromValue(new ProblemDetails(
                                 "bad request",
                                 "400",
                                 error.getMessage()))))
+                .onErrorResume(VersionConflictException.class, error -> ServerResponse.status(HttpStatus.PRECONDITION_FAILED)
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .body(BodyInserters.fromValue(new ProblemDetails(
+                                "precondition failed",
+                                "412",
+                                error.getMessage()))))
                 .switchIfEmpty(ServerResponse.badRequest()
                         .contentType(MediaType.APPLICATION_PROBLEM_JSON)
                         .body(BodyInserters.fromValue(new ProblemDetails(
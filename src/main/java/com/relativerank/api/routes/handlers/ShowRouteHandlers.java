@@ -1,27 +1,46 @@
 package com.relativerank.api.routes.handlers;
 
-import com.relativerank.api.db.RankedShow;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
 import com.relativerank.api.db.Show;
-import com.relativerank.api.dto.MalShowDetails;
 import com.relativerank.api.dto.ProblemDetails;
+import com.relativerank.api.dto.ShowBatchRequest;
+import com.relativerank.api.dto.ShowBatchResult;
 import com.relativerank.api.dto.ShowRequest;
+import com.relativerank.api.dto.ShowResolveResponse;
 import com.relativerank.api.repositories.ShowRepository;
 import com.relativerank.api.util.Constants;
+import com.relativerank.api.util.ContentNegotiation;
+import com.relativerank.api.util.MalImportService;
+import com.relativerank.api.util.MalUnavailableException;
+import com.relativerank.api.util.ServerTiming;
+import com.relativerank.api.util.ShowCache;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
@@ -29,15 +48,16 @@ import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 @Component
 public record ShowRouteHandlers(ShowRepository showRepository,
-                                WebClient webClient,
+                                ShowCache showCache,
                                 ReactiveMongoTemplate reactiveMongoTemplate,
-                                String malUserListUrl) {
+                                MalImportService malImportService) {
 
     @NonNull
     public Mono<ServerResponse> getAllShows(ServerRequest serverRequest) {
@@ -66,9 +86,9 @@ public record ShowRouteHandlers(ShowRepository showRepository,
     public Mono<ServerResponse> getShow(ServerRequest serverRequest) {
         var showId = serverRequest.pathVariable("id");
 
-        return showRepository.findById(showId)
+        return showCache.findById(showId)
                 .flatMap(show -> ServerResponse.ok()
-                        .body(BodyInserters.fromPublisher(showRepository.findById(showId), Show.class)))
+                        .body(BodyInserters.fromValue(show)))
                 .switchIfEmpty(Constants.SHOW_NOT_FOUND_RESPONSE_CREATOR.apply(showId));
     }
 
@@ -83,6 +103,7 @@ public record ShowRouteHandlers(ShowRepository showRepository,
     @NonNull
     private Mono<ServerResponse> createShow(Show show) {
         return showRepository.save(show)
+                .doOnNext(savedShow -> showCache.invalidate(savedShow.id(), savedShow.name()))
                 .flatMap(savedShow -> ServerResponse.created(URI.create("/show/" + savedShow.id()))
                         .body(BodyInserters.fromValue(savedShow)))
                 .onErrorResume(DuplicateKeyException.class, error -> ServerResponse.status(HttpStatus.CONFLICT)
@@ -101,7 +122,8 @@ public record ShowRouteHandlers(ShowRepository showRepository,
                 .cache();
 
         return showRepository.findById(showId)
-                .flatMap(existingShow -> showFromBody.flatMap(showRepository::save))
+                .flatMap(existingShow -> showFromBody.flatMap(showRepository::save)
+                        .doOnNext(savedShow -> showCache.invalidate(existingShow.id(), existingShow.name())))
                 .flatMap(savedShow -> ServerResponse.ok().body(BodyInserters.fromValue(savedShow)))
                 .switchIfEmpty(showFromBody.flatMap(this::createShow));
     }
@@ -112,11 +134,114 @@ public record ShowRouteHandlers(ShowRepository showRepository,
 
         return showRepository.findById(showId)
                 .flatMap(existingShow -> showRepository.delete(existingShow).thenReturn(existingShow))
+                .doOnNext(deletedShow -> showCache.invalidate(deletedShow.id(), deletedShow.name()))
                 .flatMap(deletedShow ->  ServerResponse.ok()
                         .body(Mono.just("Show with id: " + deletedShow.id() + " and name: " + deletedShow.name() + " was deleted"), String.class))
                 .switchIfEmpty(Constants.SHOW_NOT_FOUND_RESPONSE_CREATOR.apply(showId));
     }
 
+    @NonNull
+    public Mono<ServerResponse> batchUpsertShows(ServerRequest serverRequest) {
+        var showsFromBody = serverRequest.body(BodyExtractors.toMono(
+                new ParameterizedTypeReference<List<ShowBatchRequest>>() {}));
+
+        return showsFromBody.flatMap(shows -> {
+            if (shows.isEmpty() || shows.size() > Constants.MAX_SHOW_BATCH_SIZE) {
+                return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply(
+                        "batch must contain between 1 and " + Constants.MAX_SHOW_BATCH_SIZE + " shows");
+            }
+
+            var writes = new ArrayList<WriteModel<Document>>(shows.size());
+            var ids = new ArrayList<String>(shows.size());
+            for (var i = 0; i < shows.size(); i++) {
+                var show = shows.get(i);
+                if (show == null || show.name() == null || show.name().isBlank()) {
+                    return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("show at index: " + i + " must have a name");
+                }
+
+                // mirror the id conversion spring data does for String ids so bulk written shows read back the same
+                var id = show.id() != null ? show.id() : new ObjectId().toHexString();
+                var storedId = ObjectId.isValid(id) ? new ObjectId(id) : id;
+                var document = new Document("_id", storedId).append("name", show.name());
+                ids.add(id);
+                writes.add(show.id() == null
+                        ? new InsertOneModel<>(document)
+                        : new ReplaceOneModel<>(Filters.eq("_id", storedId), document, new ReplaceOptions().upsert(true)));
+            }
+
+            return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Show.class))
+                    .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                    .map(result -> toShowBatchResults(shows, ids, result, List.of()))
+                    .onErrorResume(MongoBulkWriteException.class, error -> Mono.just(toShowBatchResults(
+                            shows, ids, error.getWriteResult(), error.getWriteErrors())))
+                    .doOnNext(results -> results.forEach(result -> showCache.invalidate(result.id(), result.name())))
+                    .flatMap(results -> ServerResponse.ok()
+                            .body(BodyInserters.fromValue(results)));
+        });
+    }
+
+    private static List<ShowBatchResult> toShowBatchResults(List<ShowBatchRequest> shows,
+                                                            List<String> ids,
+                                                            BulkWriteResult writeResult,
+                                                            List<BulkWriteError> writeErrors) {
+        var upsertedIndexes = new HashSet<Integer>();
+        for (BulkWriteUpsert upsert : writeResult.getUpserts()) {
+            upsertedIndexes.add(upsert.getIndex());
+        }
+
+        var errorsByIndex = new HashMap<Integer, BulkWriteError>();
+        for (var writeError : writeErrors) {
+            errorsByIndex.put(writeError.getIndex(), writeError);
+        }
+
+        var results = new ArrayList<ShowBatchResult>(shows.size());
+        for (var i = 0; i < shows.size(); i++) {
+            var show = shows.get(i);
+            String status;
+            if (errorsByIndex.containsKey(i)) {
+                status = errorsByIndex.get(i).getCode() == Constants.MONGO_DUPLICATE_KEY_ERROR_CODE ? "conflict" : "error";
+            } else if (show.id() == null || upsertedIndexes.contains(i)) {
+                status = "created";
+            } else {
+                status = "updated";
+            }
+
+            results.add(new ShowBatchResult(ids.get(i), show.name(), status));
+        }
+
+        return results;
+    }
+
+    @NonNull
+    public Mono<ServerResponse> resolveShowNames(ServerRequest serverRequest) {
+        var namesFromBody = serverRequest.body(BodyExtractors.toMono(new ParameterizedTypeReference<List<String>>() {}));
+
+        return namesFromBody.flatMap(names -> {
+            if (names.size() > Constants.MAX_SHOW_BATCH_SIZE) {
+                return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply(
+                        "cannot resolve more than " + Constants.MAX_SHOW_BATCH_SIZE + " names at once");
+            }
+
+            var query = Query.query(Criteria.where("name").in(names));
+            return reactiveMongoTemplate.find(query, Show.class)
+                    .collectMap(Show::name, Show::id)
+                    .flatMap(idsByName -> {
+                        var resolved = new LinkedHashMap<String, String>();
+                        var unresolved = new ArrayList<String>();
+                        for (var name : names) {
+                            if (idsByName.containsKey(name)) {
+                                resolved.put(name, idsByName.get(name));
+                            } else {
+                                unresolved.add(name);
+                            }
+                        }
+
+                        return ServerResponse.ok()
+                                .body(BodyInserters.fromValue(new ShowResolveResponse(resolved, unresolved)));
+                    });
+        });
+    }
+
     @NonNull
     public Mono<ServerResponse> importFromMal(ServerRequest serverRequest) {
         var malUsername = serverRequest.queryParam("username").orElse(null);
@@ -128,37 +253,18 @@ public record ShowRouteHandlers(ShowRepository showRepository,
                             "Query parameter username is required")));
         }
 
-        return recursivelyGetAllShowsOfUsersMalList(malUsername, 0, new ArrayList<>())
+        return ServerTiming.time("mal", malImportService.importShowList(malUsername))
                 .flatMap(malUserShowListResponse -> ServerResponse.ok()
-                        .body(Mono.just(malUserShowListResponse), new ParameterizedTypeReference<>() {}));
-    }
-
-    private Mono<List<RankedShow>> recursivelyGetAllShowsOfUsersMalList(String malUsername, int showOffset, List<MalShowDetails> malList) {
-        var urlWithParams = String.format(malUserListUrl, malUsername, showOffset);
-        return webClient.get()
-                .uri(urlWithParams)
-                .exchangeToMono(clientResponse -> clientResponse.bodyToMono(new ParameterizedTypeReference<List<MalShowDetails>>() {}))
-                .flatMap(newMalListPage -> {
-                    if (newMalListPage.size() > 0) {
-                        malList.addAll(newMalListPage.stream()
-                                .filter(show -> show.status() == 2 || show.score() != 0)
-                                .collect(Collectors.toList()));
-
-                        return recursivelyGetAllShowsOfUsersMalList(malUsername, showOffset + 300, malList);
-                    }
-
-                    malList.sort((a, b) -> b.score() - a.score());
-
-                    var numberOfShows = malList.size();
-                    var rankCounter = new AtomicInteger(0);
-                    var rankedList = malList.stream()
-                            .map(malShow -> {
-                                var rank = rankCounter.incrementAndGet();
-                                var percentileRank = 1.0 - (double) rank / (numberOfShows + 1);
-                                return new RankedShow(malShow.anime_title(), rank, percentileRank);
-                            })
-                            .collect(Collectors.toList());
-                    return Mono.just(rankedList);
-                });
+                        .contentType(ContentNegotiation.negotiate(serverRequest))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(Mono.just(malUserShowListResponse), new ParameterizedTypeReference<>() {}))
+                .onErrorResume(IllegalArgumentException.class, error -> Constants.BAD_REQUEST_RESPONSE_CREATOR.apply(
+                        "MAL list for " + malUsername + " could not be read: " + error.getMessage()))
+                .onErrorResume(MalUnavailableException.class, error -> ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .body(BodyInserters.fromValue(new ProblemDetails(
+                                "service unavailable",
+                                "503",
+                                error.getMessage()))));
     }
 }
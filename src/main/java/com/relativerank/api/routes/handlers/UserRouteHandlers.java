@@ -5,8 +5,19 @@ import com.relativerank.api.dto.ProblemDetails;
 import com.relativerank.api.dto.UserAuthenticationResponse;
 import com.relativerank.api.dto.UsernamePassword;
 import com.relativerank.api.repositories.UserRepository;
-import com.relativerank.api.security.HmacSha512PasswordEncoder;
 import com.relativerank.api.security.JwtEncoder;
+import com.relativerank.api.security.LoginThrottle;
+import com.relativerank.api.security.LoginThrottledException;
+import com.relativerank.api.security.PasswordHasher;
+import com.relativerank.api.security.PasswordHashingUnavailableException;
+import com.relativerank.api.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
@@ -17,45 +28,71 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
-import java.util.Arrays;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
 @Component
 public record UserRouteHandlers(UserRepository userRepository,
+                                ReactiveMongoTemplate reactiveMongoTemplate,
                                 JwtEncoder jwtEncoder,
-                                HmacSha512PasswordEncoder passwordEncoder) {
+                                PasswordHasher passwordHasher,
+                                LoginThrottle loginThrottle) {
+
+    private static final Logger log = LoggerFactory.getLogger(UserRouteHandlers.class);
 
     @NonNull
     public Mono<ServerResponse> login(ServerRequest serverRequest) {
         var usernamePasswordMono = serverRequest
                 .body(BodyExtractors.toMono(UsernamePassword.class));
 
+        var clientAddress = serverRequest.remoteAddress()
+                .map(address -> address.getAddress() != null
+                        ? address.getAddress().getHostAddress()
+                        : address.getHostString())
+                .orElse(null);
+
         return usernamePasswordMono
-                .flatMap(usernamePassword -> Mono.zip(Mono.just(usernamePassword),
-                        userRepository.findByUsername(usernamePassword.username())))
-                .flatMap(bodyUserDbUserTuple -> {
-                    var bodyUser = bodyUserDbUserTuple.getT1();
-                    var dbUser = bodyUserDbUserTuple.getT2();
-                    var hashedPassword = new byte[] {};
-                    try {
-                        hashedPassword = passwordEncoder
-                                .hmacSha512HashPassword(bodyUser.password(), dbUser.passwordSalt());
-                    } catch (Exception ignored) {}
-
-                    var passwordsMatch = Arrays.equals(hashedPassword, dbUser.hashedPassword());
-                    if (passwordsMatch) {
-                        var jwt = jwtEncoder.encodeUserJwt(dbUser.username());
-                        return ServerResponse.ok()
-                                .body(BodyInserters.fromValue(new UserAuthenticationResponse(dbUser.username(), jwt)));
+                // the throttle keys on the username, so a body without one never reaches it
+                .flatMap(usernamePassword -> {
+                    if (usernamePassword.username() == null || usernamePassword.username().isBlank()) {
+                        return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("username is required");
                     }
 
-                    return ServerResponse.status(HttpStatus.UNAUTHORIZED)
-                            .contentType(MediaType.APPLICATION_PROBLEM_JSON)
-                            .body(BodyInserters.fromValue(
-                                    new ProblemDetails(
-                                            "unauthorized", "401", "invalid username or password")));
-                });
+                    return authenticate(usernamePassword, clientAddress);
+                })
+                .onErrorResume(PasswordHashingUnavailableException.class, this::passwordHashingUnavailableResponse)
+                .onErrorResume(LoginThrottledException.class, error -> ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, error.retryAfter().toSeconds())))
+                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                        .body(BodyInserters.fromValue(new ProblemDetails(
+                                "too many requests", "429", "too many login attempts, retry later"))));
+    }
+
+    private Mono<ServerResponse> authenticate(UsernamePassword usernamePassword, String clientAddress) {
+        // refused before any lookup or hashing, which is exactly what guessing traffic costs us
+        var retryAfter = loginThrottle.tryAcquire(usernamePassword.username(), clientAddress);
+        if (!retryAfter.isZero()) {
+            return Mono.error(new LoginThrottledException(retryAfter));
+        }
+
+        return userRepository.findByUsername(usernamePassword.username())
+                .flatMap(dbUser -> passwordHasher.matches(usernamePassword.password(), dbUser)
+                        .onErrorResume(error -> !(error instanceof PasswordHashingUnavailableException),
+                                error -> Mono.just(false))
+                        .flatMap(passwordsMatch -> {
+                            if (passwordsMatch) {
+                                var jwt = jwtEncoder.encodeUserJwt(dbUser.username());
+                                return rehashIfNeeded(usernamePassword.password(), dbUser)
+                                        .then(ServerResponse.ok()
+                                                .body(BodyInserters.fromValue(
+                                                        new UserAuthenticationResponse(dbUser.username(), jwt))));
+                            }
+
+                            return ServerResponse.status(HttpStatus.UNAUTHORIZED)
+                                    .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                                    .body(BodyInserters.fromValue(
+                                            new ProblemDetails("unauthorized", "401", "invalid username or password")));
+                        }));
     }
 
     @NonNull
@@ -71,29 +108,25 @@ public record UserRouteHandlers(UserRepository userRepository,
                                 "400",
                                 "username must only include a-z, A-Z, 0-9, _, or - and be 1 50 characters long")));
             }
-
-            var salt = passwordEncoder.generateRandomSalt();
-
-            byte[] hashedPassword;
-            try {
-                hashedPassword = passwordEncoder.hmacSha512HashPassword(usernamePassword.password(), salt);
-            } catch (Exception e) {
-                return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_PROBLEM_JSON)
-                        .body(BodyInserters.fromValue(
-                                new ProblemDetails("internal server error",
-                                        "500",
-                                        "failed to create user")));
+            if (Constants.RESERVED_USERNAMES.contains(usernamePassword.username())) {
+                return Constants.BAD_REQUEST_RESPONSE_CREATOR.apply("username is reserved");
             }
 
             var userId = UUID.randomUUID().toString();
-            return userRepository.save(new User(userId, usernamePassword.username(), hashedPassword, salt))
+            return passwordHasher.hash(usernamePassword.password())
+                    .flatMap(hashedPassword -> userRepository.save(new User(userId,
+                            usernamePassword.username(),
+                            hashedPassword.hash(),
+                            hashedPassword.salt(),
+                            hashedPassword.iterations())))
                     .flatMap(savedUser -> {
                         var jwt = jwtEncoder.encodeUserJwt(savedUser.username());
                         return ServerResponse.status(HttpStatus.CREATED)
                                 .body(BodyInserters.fromValue(
                                         new UserAuthenticationResponse(savedUser.username(), jwt)));
-                    });
+                    })
+                    .onErrorResume(PasswordHashingUnavailableException.class, this::passwordHashingUnavailableResponse)
+                    .onErrorResume(error -> failedToCreateUserResponse());
         });
     }
 
@@ -104,30 +137,21 @@ public record UserRouteHandlers(UserRepository userRepository,
 
         return usernamePasswordMono.flatMap(usernamePassword -> userRepository
                     .findByUsername(usernamePassword.username())
-                    .flatMap(existingUser -> {
-                        var salt = passwordEncoder.generateRandomSalt();
-
-                        byte[] hashedPassword;
-                        try {
-                            hashedPassword = passwordEncoder.hmacSha512HashPassword(usernamePassword.password(), salt);
-                        } catch (Exception e) {
-                            return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                    .contentType(MediaType.APPLICATION_PROBLEM_JSON)
-                                    .body(BodyInserters.fromValue(
-                                            new ProblemDetails("internal server error",
-                                                    "500",
-                                                    "failed to create user")));
-                        }
-
-                        return userRepository
-                                .save(new User(existingUser.id(), usernamePassword.username(), hashedPassword, salt))
-                                .flatMap(savedUser -> {
-                                    var jwt = jwtEncoder.encodeUserJwt(savedUser.username());
-                                    return ServerResponse.ok()
-                                            .body(BodyInserters.fromValue(
-                                                    new UserAuthenticationResponse(savedUser.username(), jwt)));
-                                });
-                    }));
+                    .flatMap(existingUser -> passwordHasher.hash(usernamePassword.password())
+                            .flatMap(hashedPassword -> userRepository.save(new User(existingUser.id(),
+                                    usernamePassword.username(),
+                                    hashedPassword.hash(),
+                                    hashedPassword.salt(),
+                                    hashedPassword.iterations())))
+                            .flatMap(savedUser -> {
+                                var jwt = jwtEncoder.encodeUserJwt(savedUser.username());
+                                return ServerResponse.ok()
+                                        .body(BodyInserters.fromValue(
+                                                new UserAuthenticationResponse(savedUser.username(), jwt)));
+                            })
+                            .onErrorResume(PasswordHashingUnavailableException.class,
+                                    this::passwordHashingUnavailableResponse)
+                            .onErrorResume(error -> failedToCreateUserResponse())));
     }
 
     @NonNull
@@ -138,4 +162,45 @@ public record UserRouteHandlers(UserRepository userRepository,
                 .flatMap(userRepository::delete)
                 .then(ServerResponse.ok().body(BodyInserters.fromValue("User with username: " + username)));
     }
+
+    /**
+     * Upgrades a hash weaker than the configured cost while the plain password is at hand. The update only applies
+     * while the stored hash is still the one just verified, so a password changed in the meantime is never reverted.
+     * Failing to upgrade only means trying again at the next login, so it never fails the login itself.
+     */
+    private Mono<Void> rehashIfNeeded(String password, User user) {
+        if (!passwordHasher.needsRehash(user)) {
+            return Mono.empty();
+        }
+
+        return passwordHasher.hash(password)
+                .flatMap(hashedPassword -> reactiveMongoTemplate.updateFirst(
+                        Query.query(Criteria.where("id").is(user.id())
+                                .and("hashedPassword").is(user.hashedPassword())
+                                .and("passwordSalt").is(user.passwordSalt())),
+                        new Update().set("hashedPassword", hashedPassword.hash())
+                                .set("passwordSalt", hashedPassword.salt())
+                                .set("passwordIterations", hashedPassword.iterations()),
+                        User.class))
+                .then()
+                .onErrorResume(error -> {
+                    log.warn("failed to rehash the password of {}", user.username(), error);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<ServerResponse> passwordHashingUnavailableResponse(PasswordHashingUnavailableException error) {
+        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(BodyInserters.fromValue(new ProblemDetails("service unavailable", "503", error.getMessage())));
+    }
+
+    private Mono<ServerResponse> failedToCreateUserResponse() {
+        return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(BodyInserters.fromValue(
+                        new ProblemDetails("internal server error",
+                                "500",
+                                "failed to create user")));
+    }
 }
@@ -11,17 +11,18 @@ public class AuthHandlers {
     public static final ReactiveAuthorizationManager<AuthorizationContext> jwtUsernameMatchesPathUserName =
             (authenticationMono, context) -> {
                 try {
-                    var exchange = context.getExchange();
-                    var req = exchange.getRequest();
-                    var path = req.getPath();
-                    var element = path.elements().get(path.elements().size() - 1);
-                    var pathUsername = element.value();
+                    var pathUsername = context.getVariables().get("username");
+                    if (pathUsername == null) {
+                        var path = context.getExchange().getRequest().getPath();
+                        pathUsername = path.elements().get(path.elements().size() - 1).value();
+                    }
+                    var expectedUsername = pathUsername;
 
                     return authenticationMono.map(authentication -> {
                         if (authentication instanceof JwtAuthentication jwtAuthentication) {
                             var jwtUsername = (String) jwtAuthentication.getPrincipal();
 
-                            if (Objects.equals(jwtUsername, pathUsername)) {
+                            if (Objects.equals(jwtUsername, expectedUsername)) {
                                 return new AuthorizationDecision(true);
                             }
                         }
@@ -6,28 +6,63 @@ import org.springframework.security.crypto.codec.Utf8;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Component
 @Profile("!test")
 public class HmacSha512PasswordEncoder {
 
+    // looking a Mac up is far more expensive than using one, so they are reused. A pool rather than a thread local
+    // keeps that true on virtual threads, which are never reused.
+    private static final Queue<Mac> SHA_512_HMACS = new ConcurrentLinkedQueue<>();
+
+    private static final int PBKDF2_KEY_LENGTH = 512;
+
+    // thread safe, and the native generator behind it is shared by every instance anyway
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     public byte[] generateRandomSalt() {
-        var random = new SecureRandom();
         var salt = new byte[90];
-        random.nextBytes(salt);
+        RANDOM.nextBytes(salt);
 
         return salt;
     }
 
     public byte[] hmacSha512HashPassword(String password, byte[] salt)
             throws NoSuchAlgorithmException, InvalidKeyException {
-        var sha512Hmac = Mac.getInstance(Constants.HMAC_SHA_512);
-        var secret = new SecretKeySpec(salt, Constants.HMAC_SHA_512);
-        sha512Hmac.init(secret);
-        return sha512Hmac.doFinal(Utf8.encode(password));
+        var sha512Hmac = borrowMac();
+        try {
+            sha512Hmac.init(new SecretKeySpec(salt, Constants.HMAC_SHA_512));
+            return sha512Hmac.doFinal(Utf8.encode(password));
+        } finally {
+            SHA_512_HMACS.offer(sha512Hmac);
+        }
+    }
+
+    /**
+     * PBKDF2 with HMAC-SHA512 and a 512 bit output, which is what every hash stored with an iteration count uses.
+     * Users saved before iteration counts were recorded still have a single {@link #hmacSha512HashPassword} hash.
+     */
+    public byte[] hashPassword(String password, byte[] salt, int iterations)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        var keySpec = new PBEKeySpec(password.toCharArray(), salt, iterations, PBKDF2_KEY_LENGTH);
+        try {
+            return SecretKeyFactory.getInstance(Constants.PBKDF2_WITH_HMAC_SHA_512).generateSecret(keySpec).getEncoded();
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    private static Mac borrowMac() throws NoSuchAlgorithmException {
+        var sha512Hmac = SHA_512_HMACS.poll();
+        return sha512Hmac != null ? sha512Hmac : Mac.getInstance(Constants.HMAC_SHA_512);
     }
 }
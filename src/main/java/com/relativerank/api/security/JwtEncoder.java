@@ -1,6 +1,7 @@
 package com.relativerank.api.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,12 +19,18 @@ public class JwtEncoder {
 
     private final Algorithm algorithm;
 
+    private final JWTVerifier verifier;
+
     private final String adminUsername;
 
     public JwtEncoder(@Value("${relativerank-jwt-secret}") String secret,
                       @Value("${relativerank-admin-username}") String adminUsername)
             throws UnsupportedEncodingException {
         algorithm = Algorithm.HMAC256(secret);
+        // verifiers are immutable and thread safe, so one serves every request
+        verifier = JWT.require(algorithm)
+                .withIssuer("relativerank.com")
+                .build();
         this.adminUsername = adminUsername;
     }
 
@@ -44,10 +51,6 @@ public class JwtEncoder {
     }
 
     public DecodedJWT decodeJwt(String jwt) {
-        var verifier = JWT.require(algorithm)
-                .withIssuer("relativerank.com")
-                .build();
-
         return verifier.verify(jwt);
     }
 }
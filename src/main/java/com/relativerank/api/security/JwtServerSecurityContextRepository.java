@@ -1,5 +1,8 @@
 package com.relativerank.api.security;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.relativerank.api.util.ServerTiming;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextImpl;
@@ -10,7 +13,10 @@ import reactor.core.publisher.Mono;
 
 @Component
 public record JwtServerSecurityContextRepository(ReactiveAuthenticationManager authenticationManager,
-                                                 JwtEncoder jwtEncoder) implements ServerSecurityContextRepository {
+                                                 JwtEncoder jwtEncoder,
+                                                 VerifiedJwtCache verifiedJwtCache) implements ServerSecurityContextRepository {
+
+    private static final String BEARER_PREFIX = "Bearer ";
 
     @Override
     public Mono<Void> save(ServerWebExchange serverWebExchange, SecurityContext securityContext) {
@@ -19,15 +25,41 @@ public record JwtServerSecurityContextRepository(ReactiveAuthenticationManager a
 
     @Override
     public Mono<SecurityContext> load(ServerWebExchange serverWebExchange) {
-        var authHeaders = serverWebExchange.getRequest().getHeaders().get("Authorization");
-        if (authHeaders != null && authHeaders.size() > 0) {
-            var jwt = authHeaders.get(0).substring(7);
-            var decodedJwt = jwtEncoder.decodeJwt(jwt);
+        return ServerTiming.time("auth", loadSecurityContext(serverWebExchange));
+    }
+
+    private Mono<SecurityContext> loadSecurityContext(ServerWebExchange serverWebExchange) {
+        var authHeader = serverWebExchange.getRequest().getHeaders().getFirst("Authorization");
+        if (authHeader == null || authHeader.length() <= BEARER_PREFIX.length()) {
+            return Mono.just(unauthenticatedContext());
+        }
+
+        // permit all routes never look at the caller, so their tokens are not worth verifying
+        return SecurityConfig.PERMIT_ALL_ROUTES.matches(serverWebExchange)
+                .flatMap(matchResult -> matchResult.isMatch()
+                        ? Mono.just(unauthenticatedContext())
+                        : authenticate(authHeader.substring(BEARER_PREFIX.length())));
+    }
+
+    private Mono<SecurityContext> authenticate(String jwt) {
+        var verifiedJwt = verifiedJwtCache.getIfPresent(jwt);
+        if (verifiedJwt != null) {
+            return Mono.just(new SecurityContextImpl(verifiedJwt.toAuthentication()));
+        }
 
-            return authenticationManager.authenticate(new JwtAuthentication(decodedJwt))
-                    .map(SecurityContextImpl::new);
+        DecodedJWT decodedJwt;
+        try {
+            decodedJwt = jwtEncoder.decodeJwt(jwt);
+        } catch (JWTVerificationException e) {
+            return Mono.just(unauthenticatedContext());
         }
 
-        return Mono.just(new SecurityContextImpl(new JwtAuthentication(null)));
+        return authenticationManager.authenticate(new JwtAuthentication(decodedJwt))
+                .doOnNext(authentication -> verifiedJwtCache.put(jwt, decodedJwt, authentication.getAuthorities()))
+                .map(SecurityContextImpl::new);
+    }
+
+    private static SecurityContext unauthenticatedContext() {
+        return new SecurityContextImpl(new JwtAuthentication(null));
     }
 }
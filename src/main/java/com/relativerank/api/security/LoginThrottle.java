@@ -0,0 +1,98 @@
+package com.relativerank.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.relativerank.api.util.SlidingWindowCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Limits login attempts per username and per client address over a sliding {@code login-throttle.window}.
+ * <p>
+ * Counters live in a cache bounded by {@code login-throttle.maximum-keys} that drops keys idle for a whole window,
+ * so a flood of distinct usernames or addresses costs bounded memory. Only attempts that were let through count,
+ * so a throttled key recovers as its window slides rather than staying locked while it keeps retrying.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Cache<String, SlidingWindowCounter> counters;
+
+    private final Duration window;
+
+    private final int buckets;
+
+    private final int maxAttemptsPerUsername;
+
+    private final int maxAttemptsPerAddress;
+
+    private final Counter throttledByUsername;
+
+    private final Counter throttledByAddress;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${login-throttle.window:1m}") Duration window,
+                         @Value("${login-throttle.buckets:12}") int buckets,
+                         @Value("${login-throttle.max-attempts-per-username:10}") int maxAttemptsPerUsername,
+                         @Value("${login-throttle.max-attempts-per-address:50}") int maxAttemptsPerAddress,
+                         @Value("${login-throttle.maximum-keys:100000}") long maximumKeys) {
+        this.window = window;
+        this.buckets = buckets;
+        this.maxAttemptsPerUsername = maxAttemptsPerUsername;
+        this.maxAttemptsPerAddress = maxAttemptsPerAddress;
+        counters = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(window)
+                .build();
+
+        Gauge.builder("login.throttle.keys", counters, Cache::estimatedSize)
+                .description("usernames and addresses with recent login attempts")
+                .register(meterRegistry);
+        throttledByUsername = Counter.builder("login.throttled").tag("key", "username").register(meterRegistry);
+        throttledByAddress = Counter.builder("login.throttled").tag("key", "address").register(meterRegistry);
+    }
+
+    /**
+     * Counts a login attempt and returns zero, or returns how long the caller has to wait when either key is out
+     * of attempts, in which case nothing is counted. Each key is checked and counted atomically, so a burst of
+     * concurrent attempts gets exactly the remaining budget through.
+     */
+    public Duration tryAcquire(String username, String address) {
+        var usernameCounter = counter("username:" + username.toLowerCase(Locale.ROOT));
+        var addressCounter = address != null ? counter("address:" + address) : null;
+
+        if (addressCounter != null) {
+            var addressWait = addressCounter.tryIncrement(maxAttemptsPerAddress);
+            if (!addressWait.isZero()) {
+                throttledByAddress.increment();
+                return addressWait;
+            }
+        }
+
+        var usernameWait = usernameCounter.tryIncrement(maxAttemptsPerUsername);
+        if (!usernameWait.isZero()) {
+            // the attempt is refused, so it must not use up the address's budget either
+            if (addressCounter != null) {
+                addressCounter.decrement();
+            }
+            throttledByUsername.increment();
+            return usernameWait;
+        }
+
+        return Duration.ZERO;
+    }
+
+    public void invalidateAll() {
+        counters.invalidateAll();
+    }
+
+    private SlidingWindowCounter counter(String key) {
+        return counters.get(key, ignored -> new SlidingWindowCounter(window, buckets, System::currentTimeMillis));
+    }
+}
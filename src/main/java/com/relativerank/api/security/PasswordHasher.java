@@ -0,0 +1,82 @@
+package com.relativerank.api.security;
+
+import com.relativerank.api.db.User;
+import com.relativerank.api.util.ExecutionSchedulers;
+import com.relativerank.api.util.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.security.MessageDigest;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs password hashing and salt generation off the event loop, on at most {@code crypto.threads} threads at a
+ * time, platform or virtual as {@code execution.mode} says.
+ * <p>
+ * At most {@code crypto.queue-capacity} hashes wait for a thread. Beyond that work is refused with a
+ * {@link PasswordHashingUnavailableException} instead of queueing without bound, so a login burst degrades into
+ * quick 503s rather than ever growing latency. New hashes use {@code password-hashing.iterations} and
+ * {@link #needsRehash} tells which stored hashes are weaker than that.
+ */
+@Component
+public class PasswordHasher {
+
+    public record HashedPassword(byte[] hash, byte[] salt, int iterations) {}
+
+    private final HmacSha512PasswordEncoder passwordEncoder;
+
+    private final int iterations;
+
+    private final Scheduler scheduler;
+
+    private final Timer hashTimer;
+
+    public PasswordHasher(HmacSha512PasswordEncoder passwordEncoder,
+                          ExecutionSchedulers executionSchedulers,
+                          MeterRegistry meterRegistry,
+                          @Value("${crypto.threads:4}") int threads,
+                          @Value("${crypto.queue-capacity:256}") int queueCapacity,
+                          @Value("${password-hashing.iterations:10000}") int iterations) {
+        this.passwordEncoder = passwordEncoder;
+        this.iterations = iterations;
+        scheduler = executionSchedulers.newBoundedScheduler("crypto", threads, queueCapacity);
+        hashTimer = Timer.builder("password.hash")
+                .description("time spent hashing a password on a crypto thread")
+                .register(meterRegistry);
+    }
+
+    public Mono<HashedPassword> hash(String password) {
+        return onCryptoThread(() -> {
+            var salt = passwordEncoder.generateRandomSalt();
+            return new HashedPassword(passwordEncoder.hashPassword(password, salt, iterations), salt, iterations);
+        });
+    }
+
+    public Mono<Boolean> matches(String password, User user) {
+        return onCryptoThread(() -> MessageDigest.isEqual(
+                user.hasLegacyPasswordHash()
+                        ? passwordEncoder.hmacSha512HashPassword(password, user.passwordSalt())
+                        : passwordEncoder.hashPassword(password, user.passwordSalt(), user.passwordIterations()),
+                user.hashedPassword()));
+    }
+
+    public boolean needsRehash(User user) {
+        return user.hasLegacyPasswordHash() || user.passwordIterations() < iterations;
+    }
+
+    private <T> Mono<T> onCryptoThread(HashingTask<T> task) {
+        return ServerTiming.time("hash", Mono.fromCallable(() -> hashTimer.recordCallable(task::run))
+                .subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class,
+                        error -> new PasswordHashingUnavailableException("too many password hashes in progress, retry shortly")));
+    }
+
+    @FunctionalInterface
+    private interface HashingTask<T> {
+        T run() throws Exception;
+    }
+}
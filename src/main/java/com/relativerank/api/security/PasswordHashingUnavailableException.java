@@ -0,0 +1,8 @@
+package com.relativerank.api.security;
+
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+}
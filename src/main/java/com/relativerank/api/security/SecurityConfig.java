@@ -3,12 +3,17 @@ package com.relativerank.api.security;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.AndServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.OrServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.PathPatternParserServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
@@ -19,14 +24,35 @@ import java.util.List;
 @EnableWebFluxSecurity
 public class SecurityConfig {
 
+    /**
+     * Routes open to everyone. The security context repository also uses this to skip verifying tokens sent to them.
+     */
+    static final ServerWebExchangeMatcher PERMIT_ALL_ROUTES = new OrServerWebExchangeMatcher(
+            new PathPatternParserServerWebExchangeMatcher("/login", HttpMethod.POST),
+            new PathPatternParserServerWebExchangeMatcher("/users", HttpMethod.POST),
+            new PathPatternParserServerWebExchangeMatcher("/shows", HttpMethod.GET),
+            new PathPatternParserServerWebExchangeMatcher("/shows/{id}", HttpMethod.GET),
+            new PathPatternParserServerWebExchangeMatcher("/shows/resolve", HttpMethod.POST),
+            new PathPatternParserServerWebExchangeMatcher("/import-from-mal", HttpMethod.GET),
+            new PathPatternParserServerWebExchangeMatcher("/show-lists", HttpMethod.GET),
+            new PathPatternParserServerWebExchangeMatcher("/show-lists/query", HttpMethod.POST),
+            new PathPatternParserServerWebExchangeMatcher("/show-lists/{username}", HttpMethod.GET),
+            new PathPatternParserServerWebExchangeMatcher("/show-lists/{username}/similar", HttpMethod.GET),
+            new PathPatternParserServerWebExchangeMatcher("/global-ranked-show-list/{page}", HttpMethod.GET),
+            new PathPatternParserServerWebExchangeMatcher("/recommendations/{username}", HttpMethod.GET));
+
     private final ReactiveAuthenticationManager authenticationManager;
 
     private final ServerSecurityContextRepository serverSecurityContextRepository;
 
+    private final Environment environment;
+
     public SecurityConfig(ReactiveAuthenticationManager authenticationManager,
-                          ServerSecurityContextRepository serverSecurityContextRepository) {
+                          ServerSecurityContextRepository serverSecurityContextRepository,
+                          Environment environment) {
         this.authenticationManager = authenticationManager;
         this.serverSecurityContextRepository = serverSecurityContextRepository;
+        this.environment = environment;
     }
 
     @Bean
@@ -40,23 +66,40 @@ public class SecurityConfig {
                 .authenticationManager(authenticationManager)
                 .securityContextRepository(serverSecurityContextRepository)
                 .authorizeExchange()
-                .pathMatchers(HttpMethod.POST, "/login").permitAll()
-                .pathMatchers(HttpMethod.POST, "/users").permitAll()
+                .matchers(PERMIT_ALL_ROUTES).permitAll()
+                .matchers(new AndServerWebExchangeMatcher(
+                        onManagementPort(),
+                        new PathPatternParserServerWebExchangeMatcher("/actuator/**", HttpMethod.GET))).permitAll()
                 .pathMatchers(HttpMethod.PATCH, "/users/{username}").hasRole("ADMIN")
                 .pathMatchers(HttpMethod.DELETE, "/users/{username}").hasRole("ADMIN")
-                .pathMatchers(HttpMethod.GET, "/shows").permitAll()
-                .pathMatchers(HttpMethod.GET, "/shows/{id}").permitAll()
                 .pathMatchers(HttpMethod.POST, "/shows").hasRole("ADMIN")
+                .pathMatchers(HttpMethod.POST, "/shows/batch").hasRole("ADMIN")
                 .pathMatchers(HttpMethod.PUT, "/shows/{id}").hasRole("ADMIN")
                 .pathMatchers(HttpMethod.DELETE, "/shows/{id}").hasRole("ADMIN")
-                .pathMatchers(HttpMethod.GET, "/import-from-mal").permitAll()
-                .pathMatchers(HttpMethod.GET, "/show-lists/{username}").permitAll()
+                .pathMatchers(HttpMethod.POST, "/imports").authenticated()
+                .pathMatchers(HttpMethod.GET, "/imports/{id}").authenticated()
                 .pathMatchers(HttpMethod.PUT, "/show-lists/{username}").access(AuthHandlers.jwtUsernameMatchesPathUserName)
-                .pathMatchers(HttpMethod.GET, "/global-ranked-show-list/{page}").permitAll()
+                .pathMatchers(HttpMethod.PATCH, "/show-lists/{username}").access(AuthHandlers.jwtUsernameMatchesPathUserName)
+                .pathMatchers(HttpMethod.PUT, "/show-lists/{username}/compact").access(AuthHandlers.jwtUsernameMatchesPathUserName)
                 .and()
                 .build();
     }
 
+    /**
+     * Requests that arrived on {@code management.server.port}, which is only reachable from inside the cluster. The
+     * web filter chain serves both ports, so the actuator is only opened to requests made on that one.
+     */
+    private ServerWebExchangeMatcher onManagementPort() {
+        return exchange -> {
+            var localAddress = exchange.getRequest().getLocalAddress();
+            // set once the management server has started, which also covers a random port in tests
+            var managementPort = environment.getProperty("local.management.port", Integer.class);
+            return localAddress != null && managementPort != null && localAddress.getPort() == managementPort
+                    ? ServerWebExchangeMatcher.MatchResult.match()
+                    : ServerWebExchangeMatcher.MatchResult.notMatch();
+        };
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource(@Value("${site-url}") String siteUrl) {
         var corsConfig = new CorsConfiguration();
@@ -0,0 +1,100 @@
+package com.relativerank.api.security;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+
+/**
+ * Tokens that already passed verification, with the authorities derived from them, so a client sending the same
+ * token again costs a lookup instead of an HMAC check. Entries are keyed by the SHA-256 of the token rather than
+ * the token itself and never outlive the token's {@code exp}.
+ */
+@Component
+public class VerifiedJwtCache {
+
+    public record VerifiedJwt(DecodedJWT jwt, Collection<? extends GrantedAuthority> authorities) {
+
+        public JwtAuthentication toAuthentication() {
+            var jwtAuthentication = new JwtAuthentication(jwt);
+            jwtAuthentication.setAuthorities(authorities);
+            jwtAuthentication.setAuthenticated(true);
+            return jwtAuthentication;
+        }
+    }
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Cache<String, VerifiedJwt> verifiedJwts;
+
+    public VerifiedJwtCache(MeterRegistry meterRegistry,
+                            @Value("${jwt-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${jwt-cache.maximum-ttl:10m}") Duration maximumTtl) {
+        verifiedJwts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, VerifiedJwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedJwt verifiedJwt, long currentTime) {
+                        var expiresAt = verifiedJwt.jwt().getExpiresAt();
+                        if (expiresAt == null) {
+                            return maximumTtl.toNanos();
+                        }
+
+                        var untilExpiry = Duration.between(Instant.now(), expiresAt.toInstant()).toNanos();
+                        return Math.max(0, Math.min(untilExpiry, maximumTtl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedJwt verifiedJwt, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, verifiedJwt, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedJwt verifiedJwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedJwts, "verified-jwts");
+    }
+
+    public VerifiedJwt getIfPresent(String token) {
+        var verifiedJwt = verifiedJwts.getIfPresent(key(token));
+        // expiry is enforced by the cache, this only guards the instant between the two
+        if (verifiedJwt != null && verifiedJwt.jwt().getExpiresAt() != null
+                && !verifiedJwt.jwt().getExpiresAt().toInstant().isAfter(Instant.now())) {
+            return null;
+        }
+
+        return verifiedJwt;
+    }
+
+    public void put(String token, DecodedJWT jwt, Collection<? extends GrantedAuthority> authorities) {
+        verifiedJwts.put(key(token), new VerifiedJwt(jwt, authorities));
+    }
+
+    private static String key(String token) {
+        var digest = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+}
@@ -0,0 +1,92 @@
+package com.relativerank.api.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps a thread per task executor at {@code maxConcurrency} running tasks with at most {@code queueCapacity} more
+ * waiting, rejecting anything beyond that like a bounded thread pool would.
+ * <p>
+ * Every task gets its own thread straight away and waits for a permit on it. That is only sensible with virtual
+ * threads, where a waiting thread costs next to nothing, and is what lets the cap apply without a pool.
+ */
+public class BoundedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    private final Semaphore running;
+
+    private final int maxPending;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public BoundedExecutorService(ExecutorService delegate, int maxConcurrency, int queueCapacity) {
+        this.delegate = delegate;
+        this.running = new Semaphore(maxConcurrency);
+        this.maxPending = maxConcurrency + queueCapacity;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException("more than " + maxPending + " tasks running or waiting");
+        }
+
+        try {
+            delegate.execute(() -> {
+                try {
+                    running.acquire();
+                } catch (InterruptedException e) {
+                    pending.decrementAndGet();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                try {
+                    task.run();
+                } finally {
+                    running.release();
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
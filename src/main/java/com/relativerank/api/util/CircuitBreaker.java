@@ -0,0 +1,77 @@
+package com.relativerank.api.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Opens after {@code failureThreshold} consecutive failures and refuses calls for {@code openNanos}. It then lets a
+ * single trial call through, closing again if that call succeeds and reopening if it fails.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private final LongSupplier nanoTime;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final AtomicLong openedAtNanos = new AtomicLong();
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    public CircuitBreaker(int failureThreshold, long openNanos, LongSupplier nanoTime) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Whether a call may go ahead now. A true result after the open period claims the single trial call.
+     */
+    public boolean tryAcquirePermission() {
+        if (state.get() == State.CLOSED) {
+            return true;
+        }
+
+        // restarting the clock for the trial means a trial that never reports back is retried after another period
+        var openedAt = openedAtNanos.get();
+        var now = nanoTime.getAsLong();
+        if (now - openedAt < openNanos || !openedAtNanos.compareAndSet(openedAt, now)) {
+            return false;
+        }
+
+        state.set(State.HALF_OPEN);
+        return true;
+    }
+
+    /**
+     * Returns a permission whose call was never made. A returned trial call can be claimed again straight away.
+     */
+    public void releasePermission() {
+        if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+            openedAtNanos.set(nanoTime.getAsLong() - openNanos);
+        }
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAtNanos.set(nanoTime.getAsLong());
+            state.set(State.OPEN);
+        }
+    }
+
+    public State state() {
+        return state.get();
+    }
+}
@@ -1,9 +1,13 @@
 package com.relativerank.api.util;
 
+import com.relativerank.api.dto.ProblemDetails;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+import java.util.Set;
 import java.util.function.Function;
 
 public class Constants {
@@ -13,5 +17,27 @@ public class Constants {
     public static final Function<String, Mono<ServerResponse>> SHOW_NOT_FOUND_RESPONSE_CREATOR = showId ->
             ServerResponse.status(HttpStatus.NOT_FOUND).body(Mono.just("No show found for id: " + showId), String.class);
 
+    public static final Function<String, Mono<ServerResponse>> BAD_REQUEST_RESPONSE_CREATOR = detail ->
+            ServerResponse.badRequest()
+                    .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                    .body(BodyInserters.fromValue(new ProblemDetails("bad request", "400", detail)));
+
     public static final String HMAC_SHA_512 = "HmacSHA512";
+
+    public static final String PBKDF2_WITH_HMAC_SHA_512 = "PBKDF2WithHmacSHA512";
+
+    public static final int MAX_SHOW_BATCH_SIZE = 1000;
+
+    public static final int MAX_SHOW_LIST_BATCH_SIZE = 200;
+
+    public static final int MAX_SIMILAR_USERS = 100;
+
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    public static final int MAX_COMPARISON_DISAGREEMENTS = 10;
+
+    public static final int MONGO_DUPLICATE_KEY_ERROR_CODE = 11000;
+
+    // fixed show-lists routes that would otherwise shadow a user of the same name
+    public static final Set<String> RESERVED_USERNAMES = Set.of("compare", "query");
 }
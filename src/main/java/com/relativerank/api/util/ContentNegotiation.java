@@ -0,0 +1,67 @@
+package com.relativerank.api.util;
+
+import com.relativerank.api.dto.ProblemDetails;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the response format for list payloads. Functional endpoints write with the first codec that can encode the
+ * body unless a content type is set, so handlers that support the binary formats ask this class for one and mark
+ * their responses {@code Vary: Accept} for caches. Routes filtered with {@link #requireAcceptable} refuse, before
+ * doing any work, requests whose Accept header names none of the formats.
+ */
+public class ContentNegotiation {
+
+    private ContentNegotiation() {}
+
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    public static final MediaType APPLICATION_CBOR = MediaType.APPLICATION_CBOR;
+
+    // JSON comes first so it stays the default for */* and missing Accept headers
+    private static final List<MediaType> SUPPORTED_MEDIA_TYPES =
+            List.of(MediaType.APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR);
+
+    /**
+     * The supported format the request accepts most, JSON when it has no Accept header, or null when it only accepts
+     * formats this API cannot write.
+     */
+    public static MediaType negotiate(ServerRequest serverRequest) {
+        var acceptedMediaTypes = new ArrayList<>(serverRequest.headers().accept());
+        if (acceptedMediaTypes.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+
+        for (var acceptedMediaType : acceptedMediaTypes) {
+            for (var supportedMediaType : SUPPORTED_MEDIA_TYPES) {
+                if (acceptedMediaType.isCompatibleWith(supportedMediaType)) {
+                    return supportedMediaType;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    public static Mono<ServerResponse> requireAcceptable(ServerRequest serverRequest,
+                                                         HandlerFunction<ServerResponse> next) {
+        if (negotiate(serverRequest) == null) {
+            return ServerResponse.status(HttpStatus.NOT_ACCEPTABLE)
+                    .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                    .body(BodyInserters.fromValue(new ProblemDetails("not acceptable",
+                            "406",
+                            "Accept must include one of " + SUPPORTED_MEDIA_TYPES)));
+        }
+
+        return next.handle(serverRequest);
+    }
+}
@@ -0,0 +1,103 @@
+package com.relativerank.api.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedulers for work that must stay off the event loop, run on platform or virtual threads depending on
+ * {@code execution.mode}.
+ * <p>
+ * {@link #background()} takes the global ranking refresh and import merging. In {@code platform} mode it is Reactor's
+ * bounded elastic scheduler and bounded schedulers are fixed thread pools. In {@code virtual} mode every task gets a
+ * virtual thread, capped by {@code execution.background.max-concurrency} for the background scheduler and by each
+ * bounded scheduler's own limits, with the same refusal once their queues are full.
+ */
+@Component
+public class ExecutionSchedulers {
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean virtual;
+
+    private final Scheduler background;
+
+    private final List<Scheduler> created = new CopyOnWriteArrayList<>();
+
+    public ExecutionSchedulers(MeterRegistry meterRegistry,
+                               @Value("${execution.mode:platform}") String mode,
+                               @Value("${execution.background.max-concurrency:64}") int backgroundMaxConcurrency,
+                               @Value("${execution.background.queue-capacity:100000}") int backgroundQueueCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.virtual = switch (mode) {
+            case "platform" -> false;
+            case "virtual" -> true;
+            default -> throw new IllegalArgumentException("execution.mode must be platform or virtual, not " + mode);
+        };
+        if (virtual && !VirtualThreads.available()) {
+            throw new IllegalStateException("execution.mode=virtual needs a JDK with virtual threads, this is "
+                    + Runtime.version());
+        }
+
+        background = virtual
+                ? newBoundedScheduler("background", backgroundMaxConcurrency, backgroundQueueCapacity)
+                : Schedulers.boundedElastic();
+    }
+
+    public Scheduler background() {
+        return background;
+    }
+
+    /**
+     * A scheduler running at most {@code maxConcurrency} tasks with {@code queueCapacity} more waiting, past which
+     * scheduling fails with a {@link java.util.concurrent.RejectedExecutionException}. Exported as executor metrics
+     * under {@code name}.
+     */
+    public Scheduler newBoundedScheduler(String name, int maxConcurrency, int queueCapacity) {
+        ExecutorService executor;
+        if (virtual) {
+            var boundedExecutor = new BoundedExecutorService(
+                    VirtualThreads.newThreadPerTaskExecutor(name + "-"), maxConcurrency, queueCapacity);
+            Gauge.builder("executor.pending", boundedExecutor, BoundedExecutorService::pending)
+                    .tag("name", name)
+                    .description("tasks running or waiting for a permit on a virtual thread")
+                    .register(meterRegistry);
+            executor = boundedExecutor;
+        } else {
+            var threadCount = new AtomicInteger();
+            var threadPoolExecutor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        var thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            executor = threadPoolExecutor;
+        }
+
+        var scheduler = Schedulers.fromExecutorService(
+                ExecutorServiceMetrics.monitor(meterRegistry, executor, name, List.of()), name);
+        created.add(scheduler);
+        return scheduler;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        created.forEach(Scheduler::dispose);
+    }
+}
@@ -0,0 +1,207 @@
+package com.relativerank.api.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.Show;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.dto.ImportJobStatus;
+import com.relativerank.api.repositories.ShowListStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs MAL imports in the background and writes the result straight into the user's show list.
+ * <p>
+ * Jobs wait in a queue bounded by {@code imports.queue-capacity} and are taken by {@code imports.workers} concurrent
+ * workers, so a burst of imports cannot start an unbounded number of crawls. Submitting to a full queue is refused
+ * rather than blocking. Job statuses are kept for {@code imports.retention} after their last change.
+ */
+@Component
+public class ImportJobService {
+
+    private final MalImportService malImportService;
+
+    private final ShowListStore showListStore;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private final SimilarTasteIndex similarTasteIndex;
+
+    private final ExecutionSchedulers executionSchedulers;
+
+    private final Cache<String, ImportJobStatus> jobs;
+
+    private final Sinks.Many<String> queue;
+
+    private final AtomicInteger queuedJobs = new AtomicInteger();
+
+    private final AtomicInteger runningJobs = new AtomicInteger();
+
+    private final Counter completedJobs;
+
+    private final Counter failedJobs;
+
+    private final Counter rejectedJobs;
+
+    public ImportJobService(MalImportService malImportService,
+                            ShowListStore showListStore,
+                            ReactiveMongoTemplate reactiveMongoTemplate,
+                            SimilarTasteIndex similarTasteIndex,
+                            ExecutionSchedulers executionSchedulers,
+                            MeterRegistry meterRegistry,
+                            @Value("${imports.workers:4}") int workers,
+                            @Value("${imports.queue-capacity:100}") int queueCapacity,
+                            @Value("${imports.retention:1h}") Duration retention) {
+        this.malImportService = malImportService;
+        this.showListStore = showListStore;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.similarTasteIndex = similarTasteIndex;
+        this.executionSchedulers = executionSchedulers;
+        jobs = Caffeine.newBuilder().expireAfterWrite(retention).build();
+        queue = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(queueCapacity));
+
+        Gauge.builder("imports.queued", queuedJobs, AtomicInteger::get)
+                .description("import jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("imports.running", runningJobs, AtomicInteger::get)
+                .description("import jobs being worked on")
+                .register(meterRegistry);
+        completedJobs = Counter.builder("imports.finished").tag("outcome", "completed").register(meterRegistry);
+        failedJobs = Counter.builder("imports.finished").tag("outcome", "failed").register(meterRegistry);
+        rejectedJobs = Counter.builder("imports.rejected").register(meterRegistry);
+
+        queue.asFlux().flatMap(this::runJob, workers).subscribe();
+    }
+
+    /**
+     * Queues an import and returns its initial status, or null when the queue is full.
+     */
+    public synchronized ImportJobStatus submit(String username, String malUsername, String mode) {
+        var now = Instant.now();
+        var job = new ImportJobStatus(UUID.randomUUID().toString(), username, malUsername, mode, "queued", 0, 0, null,
+                now, now);
+        jobs.put(job.id(), job);
+        queuedJobs.incrementAndGet();
+
+        // synchronized, so emissions are serialized and the only possible failure is a full queue
+        if (queue.tryEmitNext(job.id()).isFailure()) {
+            queuedJobs.decrementAndGet();
+            jobs.invalidate(job.id());
+            rejectedJobs.increment();
+            return null;
+        }
+
+        return job;
+    }
+
+    public ImportJobStatus find(String id) {
+        return jobs.getIfPresent(id);
+    }
+
+    private Mono<Void> runJob(String jobId) {
+        queuedJobs.decrementAndGet();
+        var job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            return Mono.empty();
+        }
+
+        runningJobs.incrementAndGet();
+        jobs.put(jobId, job.withState("fetching"));
+
+        return malImportService.importShowList(job.malUsername())
+                .flatMap(this::resolveShowNames)
+                .flatMap(resolvedShowNames -> {
+                    jobs.put(jobId, job.withState("saving"));
+                    return saveShowList(job, resolvedShowNames.get(true))
+                            .map(addedShowCount -> job.completed(addedShowCount, resolvedShowNames.get(false).size()));
+                })
+                .doOnNext(completedJob -> {
+                    jobs.put(jobId, completedJob);
+                    completedJobs.increment();
+                })
+                .onErrorResume(error -> {
+                    jobs.put(jobId, job.failed(error.getMessage()));
+                    failedJobs.increment();
+                    return Mono.empty();
+                })
+                .doFinally(signalType -> runningJobs.decrementAndGet())
+                .then();
+    }
+
+    /**
+     * Splits imported titles into those that name a show in the catalog and those that do not, keeping MAL's order.
+     */
+    private Mono<Map<Boolean, List<String>>> resolveShowNames(List<RankedShow> importedShows) {
+        var importedShowNames = new LinkedHashSet<String>();
+        for (var importedShow : importedShows) {
+            importedShowNames.add(importedShow.name());
+        }
+
+        return reactiveMongoTemplate.find(Query.query(Criteria.where("name").in(importedShowNames)), Show.class)
+                .map(Show::name)
+                .collect(Collectors.toSet())
+                .map(knownShowNames -> importedShowNames.stream()
+                        .collect(Collectors.partitioningBy(knownShowNames::contains)));
+    }
+
+    /**
+     * Writes the imported shows into the user's list and returns how many were added, which in merge mode leaves out
+     * those the list already had.
+     */
+    private Mono<Integer> saveShowList(ImportJobStatus job, List<String> importedShowNames) {
+        return Mono.defer(() -> showListStore.findByUsername(job.username())
+                        // merging a large list is real work, keep it off the driver's threads
+                        .publishOn(executionSchedulers.background())
+                        .flatMap(existingShowList -> {
+                            var showNames = new ArrayList<String>();
+                            if (job.mode().equals("merge")) {
+                                var existingShowNames = new HashSet<String>();
+                                for (var rankedShow : existingShowList.showList()) {
+                                    showNames.add(rankedShow.name());
+                                    existingShowNames.add(rankedShow.name());
+                                }
+                                for (var importedShowName : importedShowNames) {
+                                    if (!existingShowNames.contains(importedShowName)) {
+                                        showNames.add(importedShowName);
+                                    }
+                                }
+                            } else {
+                                showNames.addAll(importedShowNames);
+                            }
+
+                            var addedShowCount = job.mode().equals("merge")
+                                    ? showNames.size() - existingShowList.showList().size()
+                                    : showNames.size();
+                            return showListStore.replace(job.username(),
+                                    ShowList.rankShowNames(showNames),
+                                    existingShowList.versionOrZero())
+                                    .doOnNext(similarTasteIndex::index)
+                                    .thenReturn(addedShowCount);
+                        }))
+                // another write landed between reading and writing the list, so merge again on top of it
+                .retryWhen(Retry.max(3).filter(VersionConflictException.class::isInstance))
+                .switchIfEmpty(Mono.error(new IllegalStateException("user " + job.username() + " has no show list")));
+    }
+}
@@ -0,0 +1,95 @@
+package com.relativerank.api.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from non-negative long keys to double values, so large sparse accumulations do not box every
+ * key and value.
+ */
+final class LongDoubleHashMap {
+
+    private static final long EMPTY = -1L;
+
+    interface EntryConsumer {
+
+        void accept(long key, double value);
+    }
+
+    private long[] keys;
+
+    private double[] values;
+
+    private int size;
+
+    LongDoubleHashMap(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 1)) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new double[capacity];
+    }
+
+    void addTo(long key, double delta) {
+        if (key < 0) {
+            throw new IllegalArgumentException("key cannot be negative");
+        }
+
+        var mask = keys.length - 1;
+        var slot = slot(key) & mask;
+        while (true) {
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                values[slot] = delta;
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return;
+            }
+
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (var slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private void resize() {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new double[oldValues.length * 2];
+
+        var mask = keys.length - 1;
+        for (var oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldKeys[oldSlot] == EMPTY) {
+                continue;
+            }
+
+            var slot = slot(oldKeys[oldSlot]) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[oldSlot];
+            values[slot] = oldValues[oldSlot];
+        }
+    }
+
+    private static int slot(long key) {
+        var hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,183 @@
+package com.relativerank.api.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Outbound requests to MyAnimeList. Every attempt passes a circuit breaker and then a token bucket shared by all
+ * imports, and has its own timeout. Attempts the open circuit refuses take no permit. Timeouts, connection errors,
+ * 429 and 5xx responses are retried with jittered exponential backoff and count towards opening the circuit. Other
+ * 4xx responses fail with an {@link IllegalArgumentException} and are not retried.
+ * <p>
+ * An attempt never waits for a permit longer than its own timeout, nor past a deadline set with {@link #deadline}.
+ * When the bucket is booked further out than that the attempt fails with a {@link MalUnavailableException} without
+ * taking a permit, so a burst of imports cannot queue up permits that later imports would have to wait out.
+ */
+@Component
+public class MalClient {
+
+    private static final String DEADLINE_KEY = MalClient.class.getName() + ".deadline";
+
+    private static final class RetryableStatusException extends RuntimeException {
+
+        private RetryableStatusException(int status) {
+            super("MAL responded with status " + status);
+        }
+    }
+
+    private final WebClient webClient;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TokenBucketRateLimiter rateLimiter;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Duration requestTimeout;
+
+    private final int maxRetries;
+
+    private final Duration retryBackoff;
+
+    private final Timer rateLimitWait;
+
+    private final Counter retries;
+
+    public MalClient(WebClient webClient,
+                     MeterRegistry meterRegistry,
+                     @Value("${mal-client.permits-per-second:2}") double permitsPerSecond,
+                     @Value("${mal-client.burst:4}") int burst,
+                     @Value("${mal-client.request-timeout:10s}") Duration requestTimeout,
+                     @Value("${mal-client.max-retries:3}") int maxRetries,
+                     @Value("${mal-client.retry-backoff:500ms}") Duration retryBackoff,
+                     @Value("${mal-client.circuit-failure-threshold:5}") int circuitFailureThreshold,
+                     @Value("${mal-client.circuit-open-duration:30s}") Duration circuitOpenDuration) {
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = new TokenBucketRateLimiter(permitsPerSecond, burst, System::nanoTime);
+        this.circuitBreaker = new CircuitBreaker(circuitFailureThreshold, circuitOpenDuration.toNanos(), System::nanoTime);
+        this.requestTimeout = requestTimeout;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+
+        rateLimitWait = Timer.builder("mal.client.rate-limit.wait")
+                .description("time MAL requests waited for a rate limit permit")
+                .register(meterRegistry);
+        retries = Counter.builder("mal.client.retries").register(meterRegistry);
+        Gauge.builder("mal.client.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("0 closed, 1 open, 2 half open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Context for a chain of requests that gives up {@code timeout} after it is subscribed, so no request in it
+     * reserves a permit it could only use after that.
+     */
+    public static Function<Context, Context> deadline(Duration timeout) {
+        return context -> context.put(DEADLINE_KEY, System.nanoTime() + timeout.toNanos());
+    }
+
+    public <T> Mono<T> get(String url, Function<ClientResponse, Mono<T>> bodyHandler) {
+        return Mono.deferContextual(context -> attempt(url, bodyHandler, maxPermitWait(context)))
+                .retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                        .jitter(0.5)
+                        .filter(MalClient::isRetryable)
+                        .doBeforeRetry(retrySignal -> retries.increment())
+                        .onRetryExhaustedThrow((retrySpec, retrySignal) -> new MalUnavailableException(
+                                "MAL request failed after " + maxRetries + " retries: "
+                                        + retrySignal.failure().getMessage())));
+    }
+
+    private Duration maxPermitWait(ContextView context) {
+        return context.<Long>getOrEmpty(DEADLINE_KEY)
+                .map(deadlineNanos -> Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime())))
+                .filter(untilDeadline -> untilDeadline.compareTo(requestTimeout) < 0)
+                .orElse(requestTimeout);
+    }
+
+    private <T> Mono<T> attempt(String url, Function<ClientResponse, Mono<T>> bodyHandler, Duration maxWait) {
+        // the breaker goes first so attempts it refuses never book a permit later requests would have to wait out
+        if (!circuitBreaker.tryAcquirePermission()) {
+            countRequest("circuit-open");
+            return Mono.error(new MalUnavailableException("MAL is unavailable, requests are paused"));
+        }
+
+        var wait = rateLimiter.reserve(maxWait);
+        if (wait == null) {
+            // never sent, so a half open trial claimed above goes back for the next attempt
+            circuitBreaker.releasePermission();
+            countRequest("rate-limited");
+            return Mono.error(new MalUnavailableException("MAL rate limit is booked past this request's deadline"));
+        }
+
+        rateLimitWait.record(wait);
+
+        var request = webClient.get()
+                .uri(url)
+                .exchangeToMono(clientResponse -> {
+                    var status = clientResponse.rawStatusCode();
+                    if (status == 429 || status >= 500) {
+                        return clientResponse.releaseBody().then(Mono.<T>error(new RetryableStatusException(status)));
+                    }
+
+                    if (status >= 400) {
+                        return clientResponse.releaseBody().then(Mono.<T>error(
+                                new IllegalArgumentException("MAL responded with status " + status)));
+                    }
+
+                    return bodyHandler.apply(clientResponse);
+                })
+                .timeout(requestTimeout);
+
+        return (wait.isZero() ? request : Mono.delay(wait).then(request))
+                .doOnSuccess(result -> {
+                    circuitBreaker.onSuccess();
+                    countRequest("success");
+                })
+                .doOnError(error -> {
+                    if (isRetryable(error)) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onSuccess();
+                    }
+                    countRequest(outcome(error));
+                });
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        return error instanceof RetryableStatusException
+                || error instanceof TimeoutException
+                || error instanceof WebClientRequestException;
+    }
+
+    private static String outcome(Throwable error) {
+        if (error instanceof RetryableStatusException) {
+            return "retryable-status";
+        } else if (error instanceof TimeoutException) {
+            return "timeout";
+        } else if (error instanceof WebClientRequestException) {
+            return "connection-error";
+        }
+
+        return "error";
+    }
+
+    private void countRequest(String outcome) {
+        meterRegistry.counter("mal.client.requests", "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,126 @@
+package com.relativerank.api.util;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.dto.MalShowDetails;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Crawls a user's MyAnimeList list into a ranked show list.
+ * <p>
+ * MAL serves a list in pages of {@value #MAL_PAGE_SIZE} and the number of pages is not known up front, so pages are
+ * requested ahead with bounded concurrency and merged back in offset order. The crawl stops at the first empty page,
+ * which cancels any pages still in flight past it.
+ * <p>
+ * Finished crawls are cached for {@code mal-import.cache-ttl}, and imports of a username whose crawl is still running
+ * wait on that crawl rather than starting another. Requests go through {@link MalClient}, and a whole crawl gives up
+ * after {@code mal-import.timeout}, which is also the deadline its requests reserve rate limit permits against.
+ */
+@Component
+public class MalImportService {
+
+    public static final int MAL_PAGE_SIZE = 300;
+
+    private record MalPage(List<MalShowDetails> malShows, int entryCount) {}
+
+    private final MalClient malClient;
+
+    private final String malUserListUrl;
+
+    private final int pageConcurrency;
+
+    private final AsyncCache<String, List<RankedShow>> importedShowLists;
+
+    private final Duration importTimeout;
+
+    public MalImportService(MalClient malClient,
+                            String malUserListUrl,
+                            MeterRegistry meterRegistry,
+                            @Value("${mal-import.page-concurrency:4}") int pageConcurrency,
+                            @Value("${mal-import.timeout:2m}") Duration importTimeout,
+                            @Value("${mal-import.cache-ttl:10m}") Duration cacheTtl,
+                            @Value("${mal-import.cache-maximum-size:1000}") long cacheMaximumSize) {
+        this.malClient = malClient;
+        this.malUserListUrl = malUserListUrl;
+        this.pageConcurrency = pageConcurrency;
+        this.importTimeout = importTimeout;
+        importedShowLists = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaximumSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, importedShowLists.synchronous(), "mal-imports");
+    }
+
+    public Mono<List<RankedShow>> importShowList(String malUsername) {
+        // MAL usernames are case insensitive. Caffeine drops the entry if the crawl fails, so errors are not cached.
+        var importedShowList = importedShowLists.get(malUsername.toLowerCase(Locale.ROOT),
+                (username, executor) -> crawlShowList(malUsername).toFuture());
+
+        // a copy, so one caller cancelling does not cancel the crawl other callers are waiting on
+        return Mono.fromFuture(importedShowList.copy());
+    }
+
+    public void invalidateAll() {
+        importedShowLists.synchronous().invalidateAll();
+    }
+
+    private Mono<List<RankedShow>> crawlShowList(String malUsername) {
+        return Flux.<Integer, Integer>generate(() -> 0, (offset, sink) -> {
+                    sink.next(offset);
+                    return offset + MAL_PAGE_SIZE;
+                })
+                .flatMapSequential(offset -> fetchPage(malUsername, offset), pageConcurrency)
+                .takeWhile(page -> page.entryCount() > 0)
+                .flatMapIterable(MalPage::malShows)
+                .collectList()
+                .map(MalImportService::rankByScore)
+                .timeout(importTimeout, Mono.error(() -> new MalUnavailableException(
+                        "MAL import did not finish within " + importTimeout)))
+                .contextWrite(MalClient.deadline(importTimeout));
+    }
+
+    private Mono<MalPage> fetchPage(String malUsername, int offset) {
+        return malClient.get(String.format(malUserListUrl, malUsername, offset), clientResponse -> {
+            var pageParser = new MalListPageParser();
+            return clientResponse.bodyToFlux(DataBuffer.class)
+                    .doOnNext(dataBuffer -> {
+                        try {
+                            pageParser.feed(dataBuffer);
+                        } finally {
+                            DataBufferUtils.release(dataBuffer);
+                        }
+                    })
+                    .then(Mono.fromCallable(() -> new MalPage(pageParser.finish(), pageParser.entryCount())));
+        });
+    }
+
+    public static List<RankedShow> rankByScore(List<MalShowDetails> malShows) {
+        // stable, so shows with the same score keep MAL's order
+        var sortedMalShows = new ArrayList<>(malShows);
+        sortedMalShows.sort(Comparator.comparingInt(MalShowDetails::score).reversed());
+
+        var rankedShows = new ArrayList<RankedShow>(sortedMalShows.size());
+        for (var i = 0; i < sortedMalShows.size(); i++) {
+            var rank = i + 1;
+            var percentileRank = 1.0 - (double) rank / (sortedMalShows.size() + 1);
+            rankedShows.add(new RankedShow(sortedMalShows.get(i).anime_title(), rank, percentileRank));
+        }
+
+        return rankedShows;
+    }
+}
@@ -0,0 +1,127 @@
+package com.relativerank.api.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.relativerank.api.dto.MalShowDetails;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally parses one page of a MAL list as its buffers arrive, keeping only the title, score and status of
+ * each entry. Everything else in an entry is skipped token by token, so a page is never held in memory whole.
+ * <p>
+ * Only completed or scored shows are kept, but {@link #entryCount()} counts every entry so an empty page can be told
+ * apart from a page of unscored shows.
+ */
+public class MalListPageParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+
+    private final ByteArrayFeeder feeder;
+
+    private final List<MalShowDetails> malShows = new ArrayList<>();
+
+    private int entryCount;
+
+    private int depth;
+
+    private String fieldName;
+
+    private String animeTitle;
+
+    private int score;
+
+    private int status;
+
+    public MalListPageParser() {
+        try {
+            parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    public void feed(DataBuffer dataBuffer) {
+        var bytes = new byte[dataBuffer.readableByteCount()];
+        dataBuffer.read(bytes);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            parseAvailableTokens();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Signals the end of the page and returns the kept shows.
+     */
+    public List<MalShowDetails> finish() {
+        try {
+            feeder.endOfInput();
+            parseAvailableTokens();
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (depth != 0) {
+            throw new IllegalStateException("MAL list page ended inside an entry");
+        }
+
+        return malShows;
+    }
+
+    public int entryCount() {
+        return entryCount;
+    }
+
+    private void parseAvailableTokens() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_ARRAY -> depth++;
+                case START_OBJECT -> {
+                    if (depth == 0) {
+                        throw new IllegalStateException("MAL list page is not an array");
+                    }
+
+                    if (++depth == 2) {
+                        animeTitle = null;
+                        score = 0;
+                        status = 0;
+                    }
+                }
+                case END_OBJECT -> {
+                    if (depth-- == 2) {
+                        entryCount++;
+                        if (status == 2 || score != 0) {
+                            malShows.add(new MalShowDetails(animeTitle, score, status));
+                        }
+                    }
+                }
+                case END_ARRAY -> depth--;
+                case FIELD_NAME -> fieldName = depth == 2 ? parser.getCurrentName() : null;
+                default -> {
+                    if (depth == 2 && fieldName != null) {
+                        // anime_title is a number for shows titled with one, so read every value as text first
+                        switch (fieldName) {
+                            case "anime_title" -> animeTitle = parser.getValueAsString();
+                            case "score" -> score = parser.getValueAsInt();
+                            case "status" -> status = parser.getValueAsInt();
+                            default -> {}
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
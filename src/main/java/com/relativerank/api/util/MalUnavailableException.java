@@ -0,0 +1,8 @@
+package com.relativerank.api.util;
+
+public class MalUnavailableException extends RuntimeException {
+
+    public MalUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,155 @@
+package com.relativerank.api.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Rank correlation between two show lists, computed over the shows both lists contain.
+ */
+public class RankCorrelation {
+
+    private RankCorrelation() {}
+
+    /**
+     * Shows present in both lists, in the order of the first list, with their one-based position in each list.
+     */
+    public record SharedRanks(List<String> names, int[] ranksA, int[] ranksB) {
+
+        public int size() {
+            return names.size();
+        }
+    }
+
+    public static SharedRanks sharedRanks(List<String> showNamesA, List<String> showNamesB) {
+        var rankInB = new HashMap<String, Integer>(showNamesB.size() * 2);
+        for (var i = 0; i < showNamesB.size(); i++) {
+            rankInB.putIfAbsent(showNamesB.get(i), i + 1);
+        }
+
+        var names = new ArrayList<String>();
+        var ranksA = new int[Math.min(showNamesA.size(), showNamesB.size())];
+        var ranksB = new int[ranksA.length];
+        for (var i = 0; i < showNamesA.size() && names.size() < ranksA.length; i++) {
+            var rankB = rankInB.remove(showNamesA.get(i));
+            if (rankB != null) {
+                ranksA[names.size()] = i + 1;
+                ranksB[names.size()] = rankB;
+                names.add(showNamesA.get(i));
+            }
+        }
+
+        return new SharedRanks(names,
+                Arrays.copyOf(ranksA, names.size()),
+                Arrays.copyOf(ranksB, names.size()));
+    }
+
+    /**
+     * Spearman's rho of the shared shows, re-ranked within the intersection so shows only one list has do not
+     * count as disagreement. Returns 0 when fewer than two shows are shared.
+     */
+    public static double spearman(SharedRanks sharedRanks) {
+        var n = sharedRanks.size();
+        if (n < 2) {
+            return 0;
+        }
+
+        // ranksA is ascending by construction, so the intersection rank in A is just the index
+        var denseRanksB = denseRanks(sharedRanks.ranksB());
+        var squaredDifferenceSum = 0.0;
+        for (var i = 0; i < n; i++) {
+            double difference = i - denseRanksB[i];
+            squaredDifferenceSum += difference * difference;
+        }
+
+        return 1 - 6 * squaredDifferenceSum / ((double) n * ((double) n * n - 1));
+    }
+
+    /**
+     * Kendall's tau of the shared shows. The shared shows are already in the order of the first list, so discordant
+     * pairs are exactly the inversions in the second list's ranks, counted with a merge sort in O(n log n). Returns 0
+     * when fewer than two shows are shared.
+     */
+    public static double kendallTau(SharedRanks sharedRanks) {
+        var n = sharedRanks.size();
+        if (n < 2) {
+            return 0;
+        }
+
+        var ranks = sharedRanks.ranksB().clone();
+        var inversions = countInversions(ranks, new int[n], 0, n);
+        var pairs = (long) n * (n - 1) / 2;
+
+        return 1 - 2.0 * inversions / pairs;
+    }
+
+    /**
+     * Sorts {@code ranks[from, to)} and returns how many pairs in it were out of order.
+     */
+    static long countInversions(int[] ranks, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return 0;
+        }
+
+        var middle = (from + to) >>> 1;
+        var inversions = countInversions(ranks, buffer, from, middle) + countInversions(ranks, buffer, middle, to);
+
+        int left = from, right = middle, merged = from;
+        while (left < middle && right < to) {
+            if (ranks[left] <= ranks[right]) {
+                buffer[merged++] = ranks[left++];
+            } else {
+                // every remaining element of the left half is greater than ranks[right]
+                inversions += middle - left;
+                buffer[merged++] = ranks[right++];
+            }
+        }
+        while (left < middle) {
+            buffer[merged++] = ranks[left++];
+        }
+        while (right < to) {
+            buffer[merged++] = ranks[right++];
+        }
+        System.arraycopy(buffer, from, ranks, from, to - from);
+
+        return inversions;
+    }
+
+    /**
+     * Indexes into {@code sharedRanks} of the {@code limit} shows whose positions differ the most between the lists,
+     * ranked within the intersection like {@link #spearman} so shows only one list has do not shift the rest.
+     */
+    public static List<Integer> largestDisagreements(SharedRanks sharedRanks, int limit) {
+        var denseRanksB = denseRanks(sharedRanks.ranksB());
+        var indexes = new ArrayList<Integer>(sharedRanks.size());
+        for (var i = 0; i < sharedRanks.size(); i++) {
+            if (denseRanksB[i] != i) {
+                indexes.add(i);
+            }
+        }
+        indexes.sort((left, right) -> Integer.compare(
+                Math.abs(right - denseRanksB[right]),
+                Math.abs(left - denseRanksB[left])));
+
+        return indexes.size() > limit ? List.copyOf(indexes.subList(0, limit)) : indexes;
+    }
+
+    /**
+     * Replaces distinct ranks with their zero-based position in sorted order.
+     */
+    static int[] denseRanks(int[] ranks) {
+        var order = new Integer[ranks.length];
+        for (var i = 0; i < ranks.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> Integer.compare(ranks[left], ranks[right]));
+
+        var denseRanks = new int[ranks.length];
+        for (var i = 0; i < order.length; i++) {
+            denseRanks[order[i]] = i;
+        }
+
+        return denseRanks;
+    }
+}
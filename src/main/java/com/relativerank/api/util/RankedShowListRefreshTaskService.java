@@ -4,21 +4,18 @@ import com.relativerank.api.db.GlobalRankedShowList;
 import com.relativerank.api.db.RankedShow;
 import com.relativerank.api.dto.ShowScoreCount;
 import com.relativerank.api.repositories.GlobalRankedShowListRepository;
-import com.relativerank.api.repositories.ShowListRepository;
-import com.relativerank.api.repositories.ShowRepository;
+import com.relativerank.api.repositories.ShowListStore;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -26,33 +23,29 @@ import java.util.stream.Collectors;
 @Profile("!test")
 @EnableScheduling
 public record RankedShowListRefreshTaskService(GlobalRankedShowListRepository globalRankedShowListRepository,
-                                               ShowListRepository showListRepository,
-                                               ShowRepository showRepository) {
-
-    private static final ConcurrentHashMap<String, Boolean> showCache = new ConcurrentHashMap<>();
+                                               ShowListStore showListStore,
+                                               ShowCache showCache,
+                                               SimilarTasteIndex similarTasteIndex,
+                                               ShowRecommendationIndex showRecommendationIndex,
+                                               ExecutionSchedulers executionSchedulers) {
 
     @Scheduled(fixedRate = 3600000)
     public void refreshRankedShowList() {
         var start = Instant.now();
-        showListRepository.findAll()
+        var similarTasteRebuild = similarTasteIndex.startRebuild();
+        var recommendationRebuild = showRecommendationIndex.startRebuild();
+        showListStore.findAll()
+                .doOnNext(similarTasteRebuild::add)
                 // filter to only include shows that exist in show collection
                 .flatMap(showList -> {
                     var showChecks = new ArrayList<Mono<RankedShow>>();
                     for (var show : showList.showList()) {
-                        if (!showCache.containsKey(show.name())) {
-                            showChecks.add(showRepository.findByName(show.name())
-                                    .map(dbShow -> show));
-                        } else {
-                            showChecks.add(Mono.just(show));
-                        }
+                        showChecks.add(showCache.findByName(show.name())
+                                .map(dbShow -> show));
                     }
 
                     return Flux.fromIterable(showChecks)
-                            .flatMap(showMono -> showMono)
-                            .map(show -> {
-                                showCache.put(show.name(), true);
-                                return show;
-                            })
+                            .flatMapSequential(showMono -> showMono)
                             .collectList();
                 })
                 // re normalize filtered list for correct percentile rankings
@@ -66,6 +59,7 @@ public record RankedShowListRefreshTaskService(GlobalRankedShowListRepository gl
                             })
                             .collect(Collectors.toList());
                 })
+                .doOnNext(recommendationRebuild::add)
                 // sum up scores for each show
                 .reduce(new HashMap<String, ShowScoreCount>(), (map, showList) -> {
                    showList.forEach(rankedShow -> {
@@ -78,6 +72,9 @@ public record RankedShowListRefreshTaskService(GlobalRankedShowListRepository gl
                 })
                 // average out rating for each show and sort final list by rating then save
                 .doOnSuccess(map -> {
+                    similarTasteRebuild.complete();
+                    recommendationRebuild.complete();
+
                     record NameScore(String name, double score) {}
                     var nameScoreList = new ArrayList<NameScore>();
                     map.forEach((key, value) -> {
@@ -104,12 +101,14 @@ public record RankedShowListRefreshTaskService(GlobalRankedShowListRepository gl
                                     new GlobalRankedShowList(Integer.toString(pageToSave),
                                     numberOfPages,
                                     rankedShowListPageToSave))
-                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .subscribeOn(executionSchedulers.background())
                                     .subscribe();
                         }
                     }
                 })
-                .subscribeOn(Schedulers.boundedElastic())
+                // a failed refresh must not leave every later write copying into a rebuild nobody completes
+                .doOnError(error -> similarTasteRebuild.abandon())
+                .subscribeOn(executionSchedulers.background())
                 .subscribe();
     }
 }
@@ -0,0 +1,100 @@
+package com.relativerank.api.util;
+
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Where the time of one request went, reported in its {@code Server-Timing} header.
+ * <p>
+ * The web filter puts an instance in both the exchange attributes and the Reactor context, and the code being
+ * measured wraps itself with {@link #time(String, Mono)}. Without an instance in the context that is a no-op, so
+ * callers do not need to know whether timing is enabled. Spans of the same name are summed, so concurrent calls can
+ * add up to more than the request took.
+ */
+public class ServerTiming {
+
+    public static final String ATTRIBUTE = ServerTiming.class.getName();
+
+    private record Span(long nanos, int count) {}
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<String, Span> spans = new LinkedHashMap<>();
+
+    private volatile long handledAtNanos;
+
+    public static <T> Mono<T> time(String name, Mono<T> mono) {
+        return Mono.deferContextual(context -> {
+            ServerTiming serverTiming = context.getOrDefault(ServerTiming.class, null);
+            if (serverTiming == null) {
+                return mono;
+            }
+
+            var start = System.nanoTime();
+            return mono.doFinally(signal -> serverTiming.record(name, System.nanoTime() - start));
+        });
+    }
+
+    public static <T> Flux<T> time(String name, Flux<T> flux) {
+        return Flux.deferContextual(context -> {
+            ServerTiming serverTiming = context.getOrDefault(ServerTiming.class, null);
+            if (serverTiming == null) {
+                return flux;
+            }
+
+            var start = System.nanoTime();
+            return flux.doFinally(signal -> serverTiming.record(name, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Handler filter marking when the handler produced its response, which is where encoding the body starts.
+     */
+    public static Mono<ServerResponse> markHandled(ServerRequest serverRequest, HandlerFunction<ServerResponse> next) {
+        return next.handle(serverRequest).doOnNext(serverResponse -> serverRequest.attribute(ATTRIBUTE)
+                .ifPresent(serverTiming -> ((ServerTiming) serverTiming).handledAtNanos = System.nanoTime()));
+    }
+
+    public synchronized void record(String name, long nanos) {
+        spans.merge(name, new Span(nanos, 1), (span, added) -> new Span(span.nanos() + nanos, span.count() + 1));
+    }
+
+    /**
+     * Called as the response commits, which is once the first buffer of the body has been encoded, closing the span
+     * from the handler's response to here.
+     */
+    public void committing() {
+        var handledAt = handledAtNanos;
+        if (handledAt != 0) {
+            record("encode", System.nanoTime() - handledAt);
+        }
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public synchronized String header() {
+        var header = new StringBuilder();
+        spans.forEach((name, span) -> {
+            header.append(name).append(";dur=").append(millis(span.nanos()));
+            if (span.count() > 1) {
+                header.append(";desc=\"").append(span.count()).append(" calls\"");
+            }
+            header.append(", ");
+        });
+
+        return header.append("total;dur=").append(millis(elapsedNanos())).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.relativerank.api.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.relativerank.api.db.Show;
+import com.relativerank.api.repositories.ShowRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-through cache of shows keyed by both id and name. Caffeine bounds each view with W-TinyLFU eviction, and
+ * anything that writes shows must call {@link #invalidate} since entries do not expire on their own.
+ * <p>
+ * A show read from the database on a miss is only cached if nothing was invalidated while the read was in flight,
+ * otherwise a read that started before a rename could cache the old name after it and serve it indefinitely.
+ */
+@Component
+public class ShowCache {
+
+    private final ShowRepository showRepository;
+
+    private final Cache<String, Show> showsById;
+
+    private final Cache<String, Show> showsByName;
+
+    // bumped under this cache's lock by every invalidation
+    private volatile long invalidations;
+
+    public ShowCache(ShowRepository showRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${show-cache.maximum-size:50000}") long maximumSize) {
+        this.showRepository = showRepository;
+        showsById = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+        showsByName = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, showsById, "shows.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, showsByName, "shows.by-name");
+    }
+
+    public Mono<Show> findById(String id) {
+        var cachedShow = showsById.getIfPresent(id);
+        if (cachedShow != null) {
+            return Mono.just(cachedShow);
+        }
+
+        return Mono.defer(() -> {
+            var invalidationsAtRead = invalidations;
+            return showRepository.findById(id)
+                    .doOnNext(show -> putIfNotInvalidatedSince(show, invalidationsAtRead));
+        });
+    }
+
+    public Mono<Show> findByName(String name) {
+        var cachedShow = showsByName.getIfPresent(name);
+        if (cachedShow != null) {
+            return Mono.just(cachedShow);
+        }
+
+        return Mono.defer(() -> {
+            var invalidationsAtRead = invalidations;
+            return showRepository.findByName(name)
+                    .doOnNext(show -> putIfNotInvalidatedSince(show, invalidationsAtRead));
+        });
+    }
+
+    public void put(Show show) {
+        showsById.put(show.id(), show);
+        showsByName.put(show.name(), show);
+    }
+
+    private synchronized void putIfNotInvalidatedSince(Show show, long invalidationsAtRead) {
+        if (invalidations == invalidationsAtRead) {
+            put(show);
+        }
+    }
+
+    public synchronized void invalidate(String id, String name) {
+        invalidations++;
+        if (id != null) {
+            var cachedShow = showsById.getIfPresent(id);
+            showsById.invalidate(id);
+            // the id may have been cached under a name that has since been changed
+            if (cachedShow != null) {
+                showsByName.invalidate(cachedShow.name());
+            }
+        }
+
+        if (name != null) {
+            var cachedShow = showsByName.getIfPresent(name);
+            showsByName.invalidate(name);
+            if (cachedShow != null) {
+                showsById.invalidate(cachedShow.id());
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        showsById.invalidateAll();
+        showsByName.invalidateAll();
+    }
+}
@@ -0,0 +1,244 @@
+package com.relativerank.api.util;
+
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.dto.ShowRecommendation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Item to item recommendations from how often shows are ranked highly together.
+ * <p>
+ * The ranking refresh feeds every list through a {@link Rebuild}, which sums the products of percentile ranks of
+ * each pair among a user's top shows. Completing the rebuild turns the sums into cosine similarities and keeps only
+ * the closest neighbors of each show, packed into flat arrays. Recommending is then a merge over the neighbor lists
+ * of the user's top shows.
+ */
+@Component
+public class ShowRecommendationIndex {
+
+    private record Neighbors(Map<String, Integer> showIds,
+                             String[] showNames,
+                             int[] offsets,
+                             int[] neighborIds,
+                             float[] similarities) {}
+
+    private static final Neighbors NO_NEIGHBORS =
+            new Neighbors(Map.of(), new String[0], new int[] {0}, new int[0], new float[0]);
+
+    private final int topShows;
+
+    private final int neighborsPerShow;
+
+    private volatile Neighbors current = NO_NEIGHBORS;
+
+    public ShowRecommendationIndex(@Value("${recommendations.top-shows:50}") int topShows,
+                                   @Value("${recommendations.neighbors-per-show:50}") int neighborsPerShow) {
+        this.topShows = topShows;
+        this.neighborsPerShow = neighborsPerShow;
+    }
+
+    public Rebuild startRebuild() {
+        return new Rebuild();
+    }
+
+    public void clear() {
+        current = NO_NEIGHBORS;
+    }
+
+    /**
+     * Shows not in {@code showList}, scored by the similarity of each to the user's top shows weighted by how highly
+     * the user ranks those.
+     */
+    public List<ShowRecommendation> recommend(List<RankedShow> showList, int limit) {
+        var neighbors = current;
+        var rankedShowNames = new HashSet<String>(showList.size() * 2);
+        for (var rankedShow : showList) {
+            rankedShowNames.add(rankedShow.name());
+        }
+
+        var scores = new LongDoubleHashMap(256);
+        for (var i = 0; i < showList.size() && i < topShows; i++) {
+            var showId = neighbors.showIds().get(showList.get(i).name());
+            if (showId == null) {
+                continue;
+            }
+
+            var weight = showList.get(i).percentileRank();
+            for (var k = neighbors.offsets()[showId]; k < neighbors.offsets()[showId + 1]; k++) {
+                var neighborId = neighbors.neighborIds()[k];
+                if (!rankedShowNames.contains(neighbors.showNames()[neighborId])) {
+                    scores.addTo(neighborId, weight * neighbors.similarities()[k]);
+                }
+            }
+        }
+
+        var recommendations = new ArrayList<ShowRecommendation>(scores.size());
+        scores.forEach((neighborId, score) ->
+                recommendations.add(new ShowRecommendation(neighbors.showNames()[(int) neighborId], score)));
+        recommendations.sort(Comparator.comparingDouble(ShowRecommendation::score).reversed());
+
+        return recommendations.size() > limit ? List.copyOf(recommendations.subList(0, limit)) : recommendations;
+    }
+
+    /**
+     * Accumulates co-occurrences from one pass over all show lists. Not thread safe, lists must be added serially.
+     */
+    public class Rebuild {
+
+        private final Map<String, Integer> showIds = new HashMap<>();
+
+        private final List<String> showNames = new ArrayList<>();
+
+        private double[] squaredWeightSums = new double[1024];
+
+        // keyed by the two show ids packed into one long, lower id first
+        private final LongDoubleHashMap coOccurrences = new LongDoubleHashMap(1 << 16);
+
+        private Rebuild() {}
+
+        public void add(List<RankedShow> showList) {
+            var count = Math.min(topShows, showList.size());
+            var ids = new int[count];
+            var weights = new double[count];
+            for (var i = 0; i < count; i++) {
+                ids[i] = showId(showList.get(i).name());
+                weights[i] = showList.get(i).percentileRank();
+                squaredWeightSums[ids[i]] += weights[i] * weights[i];
+            }
+
+            for (var i = 0; i < count; i++) {
+                for (var j = i + 1; j < count; j++) {
+                    if (ids[i] == ids[j]) {
+                        continue;
+                    }
+
+                    var key = ids[i] < ids[j] ? pack(ids[i], ids[j]) : pack(ids[j], ids[i]);
+                    coOccurrences.addTo(key, weights[i] * weights[j]);
+                }
+            }
+        }
+
+        public void complete() {
+            var showCount = showNames.size();
+            var heapIds = new int[showCount * neighborsPerShow];
+            var heapSimilarities = new float[showCount * neighborsPerShow];
+            var heapSizes = new int[showCount];
+
+            coOccurrences.forEach((key, coOccurrence) -> {
+                var lowerId = (int) (key >>> 32);
+                var higherId = (int) key;
+                var similarity = (float) (coOccurrence
+                        / Math.sqrt(squaredWeightSums[lowerId] * squaredWeightSums[higherId]));
+                offer(heapIds, heapSimilarities, heapSizes, lowerId, higherId, similarity);
+                offer(heapIds, heapSimilarities, heapSizes, higherId, lowerId, similarity);
+            });
+
+            var offsets = new int[showCount + 1];
+            for (var showId = 0; showId < showCount; showId++) {
+                offsets[showId + 1] = offsets[showId] + heapSizes[showId];
+            }
+
+            var neighborIds = new int[offsets[showCount]];
+            var similarities = new float[offsets[showCount]];
+            for (var showId = 0; showId < showCount; showId++) {
+                // draining a min heap from the back leaves the closest neighbors first
+                var base = showId * neighborsPerShow;
+                for (var size = heapSizes[showId]; size > 0; size--) {
+                    neighborIds[offsets[showId] + size - 1] = heapIds[base];
+                    similarities[offsets[showId] + size - 1] = heapSimilarities[base];
+                    heapIds[base] = heapIds[base + size - 1];
+                    heapSimilarities[base] = heapSimilarities[base + size - 1];
+                    siftDown(heapIds, heapSimilarities, base, size - 1, 0);
+                }
+            }
+
+            current = new Neighbors(Map.copyOf(showIds),
+                    showNames.toArray(String[]::new),
+                    offsets,
+                    neighborIds,
+                    similarities);
+        }
+
+        private int showId(String showName) {
+            var showId = showIds.get(showName);
+            if (showId != null) {
+                return showId;
+            }
+
+            showId = showNames.size();
+            showIds.put(showName, showId);
+            showNames.add(showName);
+            if (showId == squaredWeightSums.length) {
+                squaredWeightSums = Arrays.copyOf(squaredWeightSums, showId * 2);
+            }
+
+            return showId;
+        }
+
+        private void offer(int[] heapIds, float[] heapSimilarities, int[] heapSizes, int showId, int neighborId, float similarity) {
+            var base = showId * neighborsPerShow;
+            var size = heapSizes[showId];
+            if (size < neighborsPerShow) {
+                heapIds[base + size] = neighborId;
+                heapSimilarities[base + size] = similarity;
+                heapSizes[showId] = size + 1;
+                siftUp(heapIds, heapSimilarities, base, size);
+            } else if (similarity > heapSimilarities[base]) {
+                heapIds[base] = neighborId;
+                heapSimilarities[base] = similarity;
+                siftDown(heapIds, heapSimilarities, base, size, 0);
+            }
+        }
+    }
+
+    private static long pack(int lowerId, int higherId) {
+        return ((long) lowerId << 32) | higherId;
+    }
+
+    private static void siftUp(int[] ids, float[] similarities, int base, int index) {
+        while (index > 0) {
+            var parent = (index - 1) / 2;
+            if (similarities[base + parent] <= similarities[base + index]) {
+                return;
+            }
+            swap(ids, similarities, base + parent, base + index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, float[] similarities, int base, int size, int index) {
+        while (true) {
+            var smallest = index;
+            var left = 2 * index + 1;
+            var right = left + 1;
+            if (left < size && similarities[base + left] < similarities[base + smallest]) {
+                smallest = left;
+            }
+            if (right < size && similarities[base + right] < similarities[base + smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(ids, similarities, base + index, base + smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] ids, float[] similarities, int left, int right) {
+        var id = ids[left];
+        ids[left] = ids[right];
+        ids[right] = id;
+        var similarity = similarities[left];
+        similarities[left] = similarities[right];
+        similarities[right] = similarity;
+    }
+}
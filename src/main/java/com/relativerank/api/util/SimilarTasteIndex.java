@@ -0,0 +1,268 @@
+package com.relativerank.api.util;
+
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.dto.SimilarUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds users whose show lists resemble each other without comparing every pair of lists.
+ * <p>
+ * Each user's top shows are summarised as a MinHash signature, which is split into bands that are hashed into
+ * buckets. Users sharing a bucket in any band become candidates, and only those candidates are scored exactly. The
+ * ranking refresh rebuilds the index from every list, and show list writes keep it current in between.
+ * <p>
+ * Buckets stop taking users at {@code similar-taste.max-bucket-size}, so a lookup scores at most that many candidates
+ * per band however many users share a popular taste. Users left out of a full bucket are still found through their
+ * other bands.
+ */
+@Component
+public class SimilarTasteIndex {
+
+    private record Entry(long version, List<String> topShowNames, int[] signature) {}
+
+    private final int topShows;
+
+    private final int bands;
+
+    private final int rowsPerBand;
+
+    private final int maxBucketSize;
+
+    private final long[] hashSeeds;
+
+    private volatile Generation current = new Generation();
+
+    private volatile Generation rebuilding;
+
+    public SimilarTasteIndex(@Value("${similar-taste.top-shows:100}") int topShows,
+                             @Value("${similar-taste.bands:16}") int bands,
+                             @Value("${similar-taste.rows-per-band:4}") int rowsPerBand,
+                             @Value("${similar-taste.max-bucket-size:200}") int maxBucketSize) {
+        this.topShows = topShows;
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+        this.maxBucketSize = maxBucketSize;
+
+        // fixed seed so signatures stay comparable across rebuilds
+        var random = new SplittableRandom(0x5EEDL);
+        hashSeeds = new long[bands * rowsPerBand];
+        for (var i = 0; i < hashSeeds.length; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+    }
+
+    public void index(ShowList showList) {
+        var entry = entry(showList);
+        Generation generation;
+        do {
+            generation = current;
+            generation.put(showList.username(), entry);
+
+            var rebuild = rebuilding;
+            if (rebuild != null) {
+                rebuild.put(showList.username(), entry);
+            }
+            // a rebuild completing between the two writes replaced the generation written to, so write again
+        } while (generation != current);
+    }
+
+    public boolean contains(String username) {
+        return current.entries.containsKey(username);
+    }
+
+    public void clear() {
+        synchronized (this) {
+            current = new Generation();
+            rebuilding = null;
+        }
+    }
+
+    /**
+     * Users most similar to {@code username}, best first. Similarity is the Jaccard overlap of both users' top shows
+     * scaled by how well the shared shows agree in order, so it runs from 0 for no overlap to 1 for identical lists.
+     */
+    public List<SimilarUser> findSimilar(String username, int limit) {
+        var generation = current;
+        var entry = generation.entries.get(username);
+        if (entry == null) {
+            return List.of();
+        }
+
+        var similarUsers = new ArrayList<SimilarUser>();
+        for (var candidate : generation.candidates(username, entry)) {
+            var candidateEntry = generation.entries.get(candidate);
+            if (candidateEntry == null) {
+                continue;
+            }
+
+            var sharedRanks = RankCorrelation.sharedRanks(entry.topShowNames(), candidateEntry.topShowNames());
+            if (sharedRanks.size() == 0) {
+                continue;
+            }
+
+            var union = entry.topShowNames().size() + candidateEntry.topShowNames().size() - sharedRanks.size();
+            var jaccard = (double) sharedRanks.size() / union;
+            var similarity = jaccard * (1 + RankCorrelation.spearman(sharedRanks)) / 2;
+            similarUsers.add(new SimilarUser(candidate, similarity, sharedRanks.size()));
+        }
+
+        similarUsers.sort(Comparator.comparingDouble(SimilarUser::similarity).reversed());
+        return similarUsers.size() > limit ? List.copyOf(similarUsers.subList(0, limit)) : similarUsers;
+    }
+
+    /**
+     * Starts building a fresh index that replaces the current one on {@link Rebuild#complete()}, so users whose
+     * lists were deleted drop out. Writes made while the rebuild runs go into both until it completes or is
+     * {@linkplain Rebuild#abandon() abandoned}.
+     */
+    public Rebuild startRebuild() {
+        synchronized (this) {
+            var generation = new Generation();
+            rebuilding = generation;
+            return new Rebuild(generation);
+        }
+    }
+
+    public class Rebuild {
+
+        private final Generation generation;
+
+        private Rebuild(Generation generation) {
+            this.generation = generation;
+        }
+
+        public void add(ShowList showList) {
+            generation.put(showList.username(), entry(showList));
+        }
+
+        public void complete() {
+            synchronized (SimilarTasteIndex.this) {
+                if (rebuilding == generation) {
+                    current = generation;
+                    rebuilding = null;
+                }
+            }
+        }
+
+        public void abandon() {
+            synchronized (SimilarTasteIndex.this) {
+                if (rebuilding == generation) {
+                    rebuilding = null;
+                }
+            }
+        }
+    }
+
+    private Entry entry(ShowList showList) {
+        var rankedShows = showList.showList();
+        var topShowNames = new ArrayList<String>(Math.min(topShows, rankedShows.size()));
+        for (var i = 0; i < rankedShows.size() && i < topShows; i++) {
+            topShowNames.add(rankedShows.get(i).name());
+        }
+
+        var signature = new int[hashSeeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (var showName : topShowNames) {
+            var showHash = mix(showName.hashCode());
+            for (var i = 0; i < signature.length; i++) {
+                signature[i] = Math.min(signature[i], (int) (mix(showHash ^ hashSeeds[i]) >>> 33));
+            }
+        }
+
+        return new Entry(showList.versionOrZero(), List.copyOf(topShowNames), signature);
+    }
+
+    private long bucketKey(int band, int[] signature) {
+        long key = band;
+        for (var row = 0; row < rowsPerBand; row++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[band * rowsPerBand + row];
+        }
+
+        return mix(key);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private class Generation {
+
+        private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+        private final ConcurrentHashMap<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+
+        void put(String username, Entry entry) {
+            entries.compute(username, (key, existing) -> {
+                // the refresh may read a list that a concurrent write has already replaced
+                if (existing != null && existing.version() > entry.version()) {
+                    return existing;
+                }
+
+                if (existing != null) {
+                    unbucket(username, existing);
+                }
+                bucket(username, entry);
+                return entry;
+            });
+        }
+
+        Set<String> candidates(String username, Entry entry) {
+            var candidates = new HashSet<String>();
+            if (entry.topShowNames().isEmpty()) {
+                return candidates;
+            }
+
+            for (var band = 0; band < bands; band++) {
+                var bucket = buckets.get(bucketKey(band, entry.signature()));
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            candidates.remove(username);
+
+            return candidates;
+        }
+
+        private void bucket(String username, Entry entry) {
+            if (entry.topShowNames().isEmpty()) {
+                return;
+            }
+
+            for (var band = 0; band < bands; band++) {
+                buckets.compute(bucketKey(band, entry.signature()), (key, usernames) -> {
+                    var bucket = usernames != null ? usernames : ConcurrentHashMap.<String>newKeySet();
+                    // compute holds the bucket's lock, so the size check and the add cannot interleave
+                    if (bucket.size() < maxBucketSize) {
+                        bucket.add(username);
+                    }
+                    return bucket;
+                });
+            }
+        }
+
+        private void unbucket(String username, Entry entry) {
+            if (entry.topShowNames().isEmpty()) {
+                return;
+            }
+
+            for (var band = 0; band < bands; band++) {
+                buckets.computeIfPresent(bucketKey(band, entry.signature()), (key, usernames) -> {
+                    usernames.remove(username);
+                    return usernames.isEmpty() ? null : usernames;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.relativerank.api.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts events over a sliding window split into {@code buckets} slots.
+ * <p>
+ * Each slot packs the bucket epoch it belongs to in its high bits and that bucket's count in its low bits, so
+ * moving a slot on to a new bucket and counting into it is a single compare and set, with no lock and no reset
+ * racing an increment. Slots left behind by an idle counter are simply ignored once their epoch falls out of the
+ * window.
+ */
+public class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 20;
+
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final long bucketMillis;
+
+    private final LongSupplier currentTimeMillis;
+
+    private final AtomicLongArray slots;
+
+    public SlidingWindowCounter(Duration window, int buckets, LongSupplier currentTimeMillis) {
+        if (buckets < 1 || window.toMillis() < buckets) {
+            throw new IllegalArgumentException("window must be at least one millisecond per bucket");
+        }
+
+        this.bucketMillis = window.toMillis() / buckets;
+        this.currentTimeMillis = currentTimeMillis;
+        this.slots = new AtomicLongArray(buckets);
+    }
+
+    public void increment() {
+        var epoch = currentTimeMillis.getAsLong() / bucketMillis;
+        var index = (int) (epoch % slots.length());
+        while (true) {
+            var slot = slots.get(index);
+            var count = (slot >>> COUNT_BITS) == epoch ? slot & COUNT_MASK : 0;
+            var updated = (epoch << COUNT_BITS) | Math.min(count + 1, COUNT_MASK);
+            if (slots.compareAndSet(index, slot, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts an event unless {@code limit} events are already in the window, and returns zero when it was counted or
+     * how long until the window drops below the limit when it was not. Checking the total and counting into the
+     * current bucket are one compare and set, so concurrent callers can never take the window past the limit.
+     */
+    public Duration tryIncrement(long limit) {
+        while (true) {
+            var epoch = currentTimeMillis.getAsLong() / bucketMillis;
+            var index = (int) (epoch % slots.length());
+            var slot = slots.get(index);
+            var count = (slot >>> COUNT_BITS) == epoch ? slot & COUNT_MASK : 0;
+
+            var total = count;
+            for (var i = 0; i < slots.length(); i++) {
+                var otherSlot = slots.get(i);
+                if (i != index && epoch - (otherSlot >>> COUNT_BITS) < slots.length()) {
+                    total += otherSlot & COUNT_MASK;
+                }
+            }
+
+            if (total >= limit) {
+                var wait = untilBelow(limit);
+                if (!wait.isZero()) {
+                    return wait;
+                }
+                // events left the window meanwhile, so look again
+                continue;
+            }
+
+            var updated = (epoch << COUNT_BITS) | Math.min(count + 1, COUNT_MASK);
+            if (slots.compareAndSet(index, slot, updated)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    /**
+     * Takes back an event counted in the current bucket. An event whose bucket has already moved on is left to
+     * leave the window on its own.
+     */
+    public void decrement() {
+        var epoch = currentTimeMillis.getAsLong() / bucketMillis;
+        var index = (int) (epoch % slots.length());
+        while (true) {
+            var slot = slots.get(index);
+            if ((slot >>> COUNT_BITS) != epoch || (slot & COUNT_MASK) == 0) {
+                return;
+            }
+
+            if (slots.compareAndSet(index, slot, slot - 1)) {
+                return;
+            }
+        }
+    }
+
+    public long count() {
+        var epoch = currentTimeMillis.getAsLong() / bucketMillis;
+        var count = 0L;
+        for (var i = 0; i < slots.length(); i++) {
+            var slot = slots.get(i);
+            if (epoch - (slot >>> COUNT_BITS) < slots.length()) {
+                count += slot & COUNT_MASK;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns how long until fewer than {@code limit} events remain in the window, zero if that is already the case.
+     */
+    public Duration untilBelow(long limit) {
+        var now = currentTimeMillis.getAsLong();
+        var epoch = now / bucketMillis;
+
+        var liveSlots = new long[slots.length()];
+        var liveCount = 0;
+        var count = 0L;
+        for (var i = 0; i < slots.length(); i++) {
+            var slot = slots.get(i);
+            if (epoch - (slot >>> COUNT_BITS) < slots.length()) {
+                liveSlots[liveCount++] = slot;
+                count += slot & COUNT_MASK;
+            }
+        }
+
+        if (count < limit) {
+            return Duration.ZERO;
+        }
+
+        // epochs are the high bits, so sorting the packed slots orders them oldest first
+        Arrays.sort(liveSlots, 0, liveCount);
+        for (var i = 0; i < liveCount; i++) {
+            count -= liveSlots[i] & COUNT_MASK;
+            if (count < limit) {
+                var expiresAt = ((liveSlots[i] >>> COUNT_BITS) + slots.length()) * bucketMillis;
+                return Duration.ofMillis(Math.max(0, expiresAt - now));
+            }
+        }
+
+        return Duration.ofMillis(bucketMillis * slots.length());
+    }
+}
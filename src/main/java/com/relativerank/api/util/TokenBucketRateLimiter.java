@@ -0,0 +1,59 @@
+package com.relativerank.api.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that refills {@code permitsPerSecond} tokens a second up to {@code burst} tokens.
+ * <p>
+ * Rather than counting tokens it tracks the time the bucket will next be full enough for a permit, the equivalent
+ * cell rate form, so reserving a permit is a single compare and set. Callers are told how long to wait instead of
+ * being blocked, which suits reactive callers that can delay without holding a thread.
+ * <p>
+ * Callers also say how long they are willing to wait. A permit further out than that is refused rather than booked,
+ * so callers that would give up before their turn never push the bucket into the future for everyone after them.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long nanosPerPermit;
+
+    private final long burstNanos;
+
+    private final LongSupplier nanoTime;
+
+    private final AtomicLong nextPermitNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+
+        this.nanosPerPermit = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstNanos = nanosPerPermit * (burst - 1);
+        this.nanoTime = nanoTime;
+        this.nextPermitNanos = new AtomicLong(nanoTime.getAsLong() - burstNanos);
+    }
+
+    /**
+     * Reserves a permit and returns how long the caller has to wait before using it, or null without reserving
+     * anything when that wait would be longer than {@code maxWait}.
+     */
+    public Duration reserve(Duration maxWait) {
+        var maxWaitNanos = maxWait.toNanos();
+        while (true) {
+            var now = nanoTime.getAsLong();
+            var nextPermit = nextPermitNanos.get();
+            // an idle bucket refills to at most burst permits
+            var permitAt = Math.max(nextPermit, now - burstNanos);
+            var waitNanos = Math.max(0, permitAt - now);
+            if (waitNanos > maxWaitNanos) {
+                return null;
+            }
+
+            if (nextPermitNanos.compareAndSet(nextPermit, permitAt + nanosPerPermit)) {
+                return Duration.ofNanos(waitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.relativerank.api.util;
+
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+package com.relativerank.api;
+
+import com.relativerank.api.util.BoundedExecutorService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedExecutorServiceTests {
+
+    @Test
+    void execute_WhenRunningAndWaitingTasksAreFull_RejectsAndRunsOnlyMaxConcurrencyAtOnce()
+            throws InterruptedException {
+        // a cached pool stands in for a virtual thread per task executor
+        var executor = new BoundedExecutorService(Executors.newCachedThreadPool(), 2, 1);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(2);
+        var running = new AtomicInteger();
+        var mostRunning = new AtomicInteger();
+        var finished = new CountDownLatch(3);
+        Runnable task = () -> {
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            finished.countDown();
+        };
+
+        executor.execute(task);
+        executor.execute(task);
+        executor.execute(task);
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(task));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, executor.pending());
+
+        release.countDown();
+        Assertions.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, mostRunning.get());
+
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, executor.pending());
+    }
+}
@@ -0,0 +1,224 @@
+package com.relativerank.api;
+
+import com.mongodb.client.result.DeleteResult;
+import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.db.ShowListChunk;
+import com.relativerank.api.db.ShowListHeader;
+import com.relativerank.api.db.ShowListSlice;
+import com.relativerank.api.repositories.ChunkedShowListStore;
+import com.relativerank.api.repositories.ShowListRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class ChunkedShowListStoreTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replace_WhenMoveStaysWithinOneChunk_OnlyRewritesThatChunk() {
+        var reactiveMongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        var store = new ChunkedShowListStore(Mockito.mock(ShowListRepository.class), reactiveMongoTemplate, 2);
+
+        var chunks = List.of(
+                new ShowListChunk("c0", "Honoka", 0, List.of("Love Live", "Idoly Pride")),
+                new ShowListChunk("c1", "Honoka", 1, List.of("Yuru Camp", "Non Non Biyori")),
+                new ShowListChunk("c2", "Honoka", 2, List.of("K-On")));
+        var header = new ShowListHeader("id", "Honoka", 3L, 5, List.of("c0", "c1", "c2"));
+        var swappedHeader = new ShowListHeader("id", "Honoka", 4L, 5, List.of("c0", "new", "c2"));
+
+        Mockito.when(reactiveMongoTemplate.findOne(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListHeader.class)))
+                .thenReturn(Mono.just(header));
+        Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListChunk.class)))
+                .thenReturn(Flux.fromIterable(chunks));
+        Mockito.when(reactiveMongoTemplate.insertAll(ArgumentMatchers.anyCollection())).thenReturn(Flux.empty());
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowListHeader.class))).thenReturn(Mono.just(swappedHeader));
+        Mockito.when(reactiveMongoTemplate.remove(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListChunk.class)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        var movedShowNames = List.of("Love Live", "Idoly Pride", "Non Non Biyori", "Yuru Camp", "K-On");
+        var savedShowList = store.replace("Honoka", ShowList.rankShowNames(movedShowNames), 3L).block();
+
+        Assertions.assertNotNull(savedShowList);
+        Assertions.assertEquals(4L, savedShowList.version());
+        Assertions.assertEquals(ShowList.rankShowNames(movedShowNames), savedShowList.showList());
+
+        var insertedChunks = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(reactiveMongoTemplate).insertAll(insertedChunks.capture());
+        var writtenChunks = new ArrayList<ShowListChunk>(insertedChunks.getValue());
+        Assertions.assertEquals(1, writtenChunks.size());
+        Assertions.assertEquals(1, writtenChunks.get(0).index());
+        Assertions.assertEquals(List.of("Non Non Biyori", "Yuru Camp"), writtenChunks.get(0).showNames());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replace_WhenInsertLandsInMiddleChunk_RewritesThatChunkAndEveryLaterOne() {
+        var reactiveMongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        var store = new ChunkedShowListStore(Mockito.mock(ShowListRepository.class), reactiveMongoTemplate, 2);
+        mockWrite(reactiveMongoTemplate);
+
+        var insertedShowNames = List.of("Love Live", "Idoly Pride", "Yuru Camp", "Bocchi", "Non Non Biyori", "K-On");
+        var savedShowList = store.replace("Honoka", ShowList.rankShowNames(insertedShowNames), 3L).block();
+
+        Assertions.assertNotNull(savedShowList);
+        Assertions.assertEquals(ShowList.rankShowNames(insertedShowNames), savedShowList.showList());
+
+        var insertedChunks = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(reactiveMongoTemplate).insertAll(insertedChunks.capture());
+        var writtenChunks = new ArrayList<ShowListChunk>(insertedChunks.getValue());
+        Assertions.assertEquals(List.of(1, 2), writtenChunks.stream().map(ShowListChunk::index).toList());
+        Assertions.assertEquals(List.of("Yuru Camp", "Bocchi"), writtenChunks.get(0).showNames());
+        Assertions.assertEquals(List.of("Non Non Biyori", "K-On"), writtenChunks.get(1).showNames());
+
+        Assertions.assertEquals(List.of("c0", writtenChunks.get(0).id(), writtenChunks.get(1).id()),
+                swappedChunkIds(reactiveMongoTemplate));
+        Assertions.assertEquals(List.of("c1", "c2"), removedChunkIds(reactiveMongoTemplate));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replace_WhenRemoveLandsInFirstChunk_RewritesLaterChunksAndDropsTheEmptiedOne() {
+        var reactiveMongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        var store = new ChunkedShowListStore(Mockito.mock(ShowListRepository.class), reactiveMongoTemplate, 2);
+        mockWrite(reactiveMongoTemplate);
+
+        var remainingShowNames = List.of("Love Live", "Yuru Camp", "Non Non Biyori", "K-On");
+        var savedShowList = store.replace("Honoka", ShowList.rankShowNames(remainingShowNames), 3L).block();
+
+        Assertions.assertNotNull(savedShowList);
+        Assertions.assertEquals(ShowList.rankShowNames(remainingShowNames), savedShowList.showList());
+
+        var insertedChunks = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(reactiveMongoTemplate).insertAll(insertedChunks.capture());
+        var writtenChunks = new ArrayList<ShowListChunk>(insertedChunks.getValue());
+        Assertions.assertEquals(2, writtenChunks.size());
+        Assertions.assertEquals(List.of("Love Live", "Yuru Camp"), writtenChunks.get(0).showNames());
+        Assertions.assertEquals(List.of("Non Non Biyori", "K-On"), writtenChunks.get(1).showNames());
+
+        Assertions.assertEquals(writtenChunks.stream().map(ShowListChunk::id).toList(),
+                swappedChunkIds(reactiveMongoTemplate));
+        Assertions.assertEquals(List.of("c0", "c1", "c2"), removedChunkIds(reactiveMongoTemplate));
+    }
+
+    @Test
+    void findByUsername_WhenChunksAreRemovedByASwapAfterHeaderIsRead_RereadsTheNewHeader() {
+        var reactiveMongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        var store = new ChunkedShowListStore(Mockito.mock(ShowListRepository.class), reactiveMongoTemplate, 2);
+
+        var staleHeader = new ShowListHeader("id", "Honoka", 3L, 3, List.of("c0", "c1"));
+        var swappedHeader = new ShowListHeader("id", "Honoka", 4L, 4, List.of("c0", "n1"));
+        Mockito.when(reactiveMongoTemplate.findOne(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListHeader.class)))
+                .thenReturn(Mono.just(staleHeader), Mono.just(swappedHeader));
+        Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListChunk.class)))
+                // c1 was already removed by the write that swapped the header
+                .thenReturn(Flux.just(new ShowListChunk("c0", "Honoka", 0, List.of("Love Live", "Idoly Pride"))),
+                        Flux.just(new ShowListChunk("c0", "Honoka", 0, List.of("Love Live", "Idoly Pride")),
+                                new ShowListChunk("n1", "Honoka", 1, List.of("Yuru Camp", "K-On"))));
+
+        var showList = store.findByUsername("Honoka").block();
+
+        Assertions.assertNotNull(showList);
+        Assertions.assertEquals(4L, showList.version());
+        Assertions.assertEquals(ShowList.rankShowNames(List.of("Love Live", "Idoly Pride", "Yuru Camp", "K-On")),
+                showList.showList());
+    }
+
+    @Test
+    void replace_WhenRanksAreInvalid_FailsWithoutWriting() {
+        var reactiveMongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        var store = new ChunkedShowListStore(Mockito.mock(ShowListRepository.class), reactiveMongoTemplate, 2);
+
+        var invalidShowList = List.of(new RankedShow("Love Live", 2, 0.666), new RankedShow("Idoly Pride", 1, 0.333));
+
+        StepVerifier.create(store.replace("Honoka", invalidShowList, null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        Mockito.verifyNoInteractions(reactiveMongoTemplate);
+    }
+
+    @Test
+    void findSlicesByUsernames_WhenLimitIsGiven_OnlyReadsLeadingChunks_AndKeepsWholeListPercentiles() {
+        var reactiveMongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        var store = new ChunkedShowListStore(Mockito.mock(ShowListRepository.class), reactiveMongoTemplate, 2);
+
+        var header = new ShowListHeader("id", "Honoka", 3L, 5, List.of("c0", "c1", "c2"));
+        Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListHeader.class)))
+                .thenReturn(Flux.just(header));
+        Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListChunk.class)))
+                .thenReturn(Flux.just(
+                        new ShowListChunk("c0", "Honoka", 0, List.of("Love Live", "Idoly Pride")),
+                        new ShowListChunk("c1", "Honoka", 1, List.of("Yuru Camp", "Non Non Biyori"))));
+
+        var slices = store.findSlicesByUsernames(List.of("Honoka"), 3).collectList().block();
+
+        var fullShowList = ShowList.rankShowNames(List.of("Love Live", "Idoly Pride", "Yuru Camp", "Non Non Biyori", "K-On"));
+        Assertions.assertEquals(List.of(new ShowListSlice("Honoka", 3L, 5, fullShowList.subList(0, 3))), slices);
+
+        var chunkQuery = ArgumentCaptor.forClass(Query.class);
+        Mockito.verify(reactiveMongoTemplate).find(chunkQuery.capture(), ArgumentMatchers.eq(ShowListChunk.class));
+        Assertions.assertEquals(List.of("c0", "c1"),
+                chunkQuery.getValue().getQueryObject().get("id", Document.class).get("$in"));
+    }
+
+    /**
+     * Stubs a stored five show list in chunks of two at version 3, accepting any write on top of it.
+     */
+    private static void mockWrite(ReactiveMongoTemplate reactiveMongoTemplate) {
+        var chunks = List.of(
+                new ShowListChunk("c0", "Honoka", 0, List.of("Love Live", "Idoly Pride")),
+                new ShowListChunk("c1", "Honoka", 1, List.of("Yuru Camp", "Non Non Biyori")),
+                new ShowListChunk("c2", "Honoka", 2, List.of("K-On")));
+        var header = new ShowListHeader("id", "Honoka", 3L, 5, List.of("c0", "c1", "c2"));
+
+        Mockito.when(reactiveMongoTemplate.findOne(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListHeader.class)))
+                .thenReturn(Mono.just(header));
+        Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListChunk.class)))
+                .thenReturn(Flux.fromIterable(chunks));
+        Mockito.when(reactiveMongoTemplate.insertAll(ArgumentMatchers.anyCollection())).thenReturn(Flux.empty());
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowListHeader.class)))
+                .thenReturn(Mono.just(new ShowListHeader("id", "Honoka", 4L, 0, List.of())));
+        Mockito.when(reactiveMongoTemplate.remove(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowListChunk.class)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+    }
+
+    private static Object swappedChunkIds(ReactiveMongoTemplate reactiveMongoTemplate) {
+        var update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        Mockito.verify(reactiveMongoTemplate).findAndModify(
+                ArgumentMatchers.any(Query.class),
+                update.capture(),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowListHeader.class));
+
+        return update.getValue().getUpdateObject().get("$set", Document.class).get("chunkIds");
+    }
+
+    private static Object removedChunkIds(ReactiveMongoTemplate reactiveMongoTemplate) {
+        var query = ArgumentCaptor.forClass(Query.class);
+        Mockito.verify(reactiveMongoTemplate).remove(query.capture(), ArgumentMatchers.eq(ShowListChunk.class));
+
+        return query.getValue().getQueryObject().get("id", Document.class).get("$in");
+    }
+}
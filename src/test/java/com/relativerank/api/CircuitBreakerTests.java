@@ -0,0 +1,61 @@
+package com.relativerank.api;
+
+import com.relativerank.api.util.CircuitBreaker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CircuitBreakerTests {
+
+    @Test
+    void tryAcquirePermission_AfterThresholdFailures_RefusesUntilOpenPeriodEnds_ThenAllowsOneTrial() {
+        var now = new AtomicLong();
+        var circuitBreaker = new CircuitBreaker(3, 1_000, now::get);
+
+        for (var i = 0; i < 3; i++) {
+            Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        Assertions.assertFalse(circuitBreaker.tryAcquirePermission());
+
+        now.addAndGet(1_000);
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assertions.assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void onFailure_WhenTrialCallFails_ReopensImmediately() {
+        var now = new AtomicLong();
+        var circuitBreaker = new CircuitBreaker(1, 1_000, now::get);
+
+        circuitBreaker.onFailure();
+        now.addAndGet(1_000);
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        Assertions.assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void releasePermission_WhenTrialCallWasNeverMade_LetsTheNextCallBeTheTrial() {
+        var now = new AtomicLong();
+        var circuitBreaker = new CircuitBreaker(1, 1_000, now::get);
+
+        circuitBreaker.onFailure();
+        now.addAndGet(1_000);
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assertions.assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.releasePermission();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+    }
+}
@@ -6,7 +6,16 @@ import com.relativerank.api.repositories.ShowRepository;
 import com.relativerank.api.repositories.UserRepository;
 import com.relativerank.api.security.HmacSha512PasswordEncoder;
 import com.relativerank.api.security.JwtEncoder;
+import com.relativerank.api.security.LoginThrottle;
+import com.relativerank.api.util.MalImportService;
+import com.relativerank.api.util.ShowCache;
+import com.relativerank.api.util.ShowRecommendationIndex;
+import com.relativerank.api.util.SimilarTasteIndex;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,6 +28,9 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ContextConfiguration(classes = {ApiApplication.class, ShowEndpointTests.TestConfig.class})
@@ -29,7 +41,7 @@ public class EndpointTestsBase {
 
         @Bean
         String malUserListUrl() {
-            return String.format("http://localhost:%s", mockWebServer.getPort());
+            return String.format("http://localhost:%s/animelist/%%s/load.json?offset=%%s", mockWebServer.getPort());
         }
 
         @Bean
@@ -74,6 +86,55 @@ public class EndpointTestsBase {
     @Autowired
     protected HmacSha512PasswordEncoder passwordEncoder;
 
+    @Autowired
+    protected ShowCache showCache;
+
+    @Autowired
+    protected SimilarTasteIndex similarTasteIndex;
+
+    @Autowired
+    protected ShowRecommendationIndex showRecommendationIndex;
+
+    @Autowired
+    protected MalImportService malImportService;
+
+    @Autowired
+    protected LoginThrottle loginThrottle;
+
     @Value("${relativerank-admin-username}")
     protected String adminUsername;
+
+    @BeforeEach
+    void clearCaches() {
+        // caches outlive a single test while the mocked repositories are restubbed per test
+        showCache.invalidateAll();
+        similarTasteIndex.clear();
+        showRecommendationIndex.clear();
+        malImportService.invalidateAll();
+        loginThrottle.invalidateAll();
+    }
+
+    /**
+     * Serves {@code pages} by their offset with {@code delayMillis} of latency each, and an empty page past the end.
+     * Returns how many crawls requested the first page.
+     */
+    protected static AtomicInteger dispatchMalPages(List<String> pages, long delayMillis) {
+        var crawlsStarted = new AtomicInteger();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                var offset = Integer.parseInt(request.getRequestUrl().queryParameter("offset"));
+                if (offset == 0) {
+                    crawlsStarted.incrementAndGet();
+                }
+
+                var page = offset / MalImportService.MAL_PAGE_SIZE;
+                return new MockResponse().setBody(page < pages.size() ? pages.get(page) : "[]")
+                        .addHeader("Content-Type", "application/json")
+                        .setBodyDelay(delayMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        return crawlsStarted;
+    }
 }
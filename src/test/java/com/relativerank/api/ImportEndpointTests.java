@@ -0,0 +1,92 @@
+package com.relativerank.api;
+
+import com.relativerank.api.db.Show;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.dto.ImportJobStatus;
+import com.relativerank.api.dto.ImportRequest;
+import com.relativerank.api.dto.ProblemDetails;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public class ImportEndpointTests extends EndpointTestsBase {
+
+    @Test
+    void createImportEndpoint_WhenMergingIntoExistingShowList_Returns202_AcceptedStatus_AndJobCompletesCountingOnlyAddedShows() throws InterruptedException {
+        var username = "Honoka";
+        dispatchMalPages(List.of("[{\"anime_title\":\"Love Live\",\"score\":9,\"status\":2},"
+                + "{\"anime_title\":\"Idoly Pride\",\"score\":8,\"status\":2},"
+                + "{\"anime_title\":\"Not A Show\",\"score\":7,\"status\":2}]"), 0);
+
+        Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(Show.class)))
+                .thenReturn(Flux.just(new Show("id", "Love Live"), new Show("id2", "Idoly Pride")));
+        Mockito.when(showListRepository.findByUsername(username)).thenReturn(Mono.just(
+                new ShowList("id", username, ShowList.rankShowNames(List.of("Idoly Pride")), 1L)));
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class))).thenReturn(Mono.just(
+                        new ShowList("id", username, ShowList.rankShowNames(List.of("Idoly Pride", "Love Live")), 2L)));
+
+        var userJwt = jwtEncoder.encodeUserJwt(username);
+        var job = webTestClient.post()
+                .uri("/imports")
+                .header("Authorization", "Bearer " + userJwt)
+                .bodyValue(new ImportRequest("MP7373", "merge"))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(ImportJobStatus.class)
+                .returnResult()
+                .getResponseBody();
+
+        Assertions.assertNotNull(job);
+        ImportJobStatus status = job;
+        for (var attempt = 0; attempt < 50 && !status.state().equals("completed") && !status.state().equals("failed"); attempt++) {
+            Thread.sleep(100);
+            status = webTestClient.get()
+                    .uri("/imports/" + job.id())
+                    .header("Authorization", "Bearer " + userJwt)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(ImportJobStatus.class)
+                    .returnResult()
+                    .getResponseBody();
+        }
+
+        Assertions.assertEquals("completed", status.state());
+        Assertions.assertEquals(1, status.importedShows());
+        Assertions.assertEquals(1, status.unresolvedShows());
+
+        // the existing show keeps its place and only the new one is appended
+        var update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        Mockito.verify(reactiveMongoTemplate).findAndModify(
+                ArgumentMatchers.any(Query.class),
+                update.capture(),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class));
+        var setFields = (Document) update.getValue().getUpdateObject().get("$set");
+        Assertions.assertEquals(ShowList.rankShowNames(List.of("Idoly Pride", "Love Live")), setFields.get("showList"));
+    }
+
+    @Test
+    void getImportEndpoint_WhenJobDoesNotExist_Returns404_NotFoundStatus_WithResponseBodyContainingProblemDetails() {
+        webTestClient.get()
+                .uri("/imports/unknown")
+                .header("Authorization", "Bearer " + jwtEncoder.encodeUserJwt("Honoka"))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ProblemDetails.class)
+                .value(body -> Assertions.assertEquals("import job does not exist", body.detail()));
+    }
+}
@@ -0,0 +1,52 @@
+package com.relativerank.api;
+
+import com.relativerank.api.security.LoginThrottle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoginThrottleTests {
+
+    @Test
+    void tryAcquire_WhenAttemptsForOneUsernameArriveConcurrently_LetsExactlyTheBudgetThrough()
+            throws InterruptedException {
+        var loginThrottle = new LoginThrottle(new SimpleMeterRegistry(), Duration.ofMinutes(1), 12, 10, 1_000, 100);
+        var threads = 64;
+        var start = new CountDownLatch(1);
+        var acquired = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(threads);
+        for (var i = 0; i < threads; i++) {
+            var address = "10.0.0." + i;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (loginThrottle.tryAcquire("Honoka", address).isZero()) {
+                    acquired.incrementAndGet();
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(10, acquired.get());
+    }
+
+    @Test
+    void tryAcquire_WhenUsernameIsOutOfAttempts_DoesNotUseUpTheAddressBudget() {
+        var loginThrottle = new LoginThrottle(new SimpleMeterRegistry(), Duration.ofMinutes(1), 12, 1, 2, 100);
+
+        Assertions.assertTrue(loginThrottle.tryAcquire("Honoka", "10.0.0.1").isZero());
+        Assertions.assertFalse(loginThrottle.tryAcquire("Honoka", "10.0.0.1").isZero());
+        Assertions.assertTrue(loginThrottle.tryAcquire("Umi", "10.0.0.1").isZero());
+    }
+}
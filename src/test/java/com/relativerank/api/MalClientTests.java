@@ -0,0 +1,44 @@
+package com.relativerank.api;
+
+import com.relativerank.api.util.MalClient;
+import com.relativerank.api.util.MalUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MalClientTests {
+
+    @Test
+    void get_WhenCircuitIsOpen_RefusesWithoutTakingRateLimitPermits() {
+        var sentRequests = new AtomicInteger();
+        var webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    sentRequests.incrementAndGet();
+                    return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+                })
+                .build();
+        var meterRegistry = new SimpleMeterRegistry();
+        // one permit a second with a ten second timeout, so ten booked permits would leave the rest rate limited
+        var malClient = new MalClient(webClient, meterRegistry, 1, 1, Duration.ofSeconds(10), 0, Duration.ofMillis(10),
+                1, Duration.ofHours(1));
+
+        Assertions.assertThrows(MalUnavailableException.class,
+                () -> malClient.get("http://mal.test/list", ClientResponse::releaseBody).block());
+        for (var i = 0; i < 100; i++) {
+            Assertions.assertThrows(MalUnavailableException.class,
+                    () -> malClient.get("http://mal.test/list", ClientResponse::releaseBody).block());
+        }
+
+        Assertions.assertEquals(1, sentRequests.get());
+        Assertions.assertEquals(100, meterRegistry.counter("mal.client.requests", "outcome", "circuit-open").count());
+        Assertions.assertEquals(0, meterRegistry.counter("mal.client.requests", "outcome", "rate-limited").count());
+        Assertions.assertEquals(1, meterRegistry.timer("mal.client.rate-limit.wait").count());
+    }
+}
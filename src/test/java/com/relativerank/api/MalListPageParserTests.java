@@ -0,0 +1,42 @@
+package com.relativerank.api;
+
+import com.relativerank.api.dto.MalShowDetails;
+import com.relativerank.api.util.MalListPageParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+public class MalListPageParserTests {
+
+    @Test
+    void finish_WhenPageArrivesInSmallBuffers_KeepsCompletedOrScoredShows() {
+        var parser = new MalListPageParser();
+        feedInChunks(parser, TestConstants.onePageMalListJsonString, 7);
+
+        Assertions.assertEquals(243, parser.finish().size());
+        Assertions.assertEquals(259, parser.entryCount());
+    }
+
+    @Test
+    void finish_WhenTitleIsNumericAndEntriesHaveNestedValues_ReadsOnlyTopLevelFields() {
+        var page = "[{\"anime_title\":86,\"score\":9,\"status\":2,\"anime_studios\":[{\"name\":\"A-1\",\"score\":1}]},"
+                + "{\"tags\":{\"status\":2},\"anime_title\":\"Eva\",\"score\":0,\"status\":6}]";
+        var parser = new MalListPageParser();
+        feedInChunks(parser, page, 5);
+
+        Assertions.assertEquals(List.of(new MalShowDetails("86", 9, 2)), parser.finish());
+        Assertions.assertEquals(2, parser.entryCount());
+    }
+
+    private static void feedInChunks(MalListPageParser parser, String json, int chunkSize) {
+        var bytes = json.getBytes(StandardCharsets.UTF_8);
+        for (var start = 0; start < bytes.length; start += chunkSize) {
+            var chunk = Arrays.copyOfRange(bytes, start, Math.min(start + chunkSize, bytes.length));
+            parser.feed(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+    }
+}
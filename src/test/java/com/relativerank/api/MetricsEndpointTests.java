@@ -0,0 +1,52 @@
+package com.relativerank.api;
+
+import com.relativerank.api.db.Show;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+@AutoConfigureMetrics
+public class MetricsEndpointTests extends EndpointTestsBase {
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    void prometheusEndpoint_AfterARequest_Returns200_OkStatus_WithLatencyHistogramForItsRoute() {
+        Mockito.when(showRepository.findAll()).thenReturn(Flux.just(new Show("id", "Shingeki no Kyojin")));
+
+        webTestClient.get()
+                .uri("/shows")
+                .exchange()
+                .expectStatus().isOk();
+
+        managementWebTestClient().get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(scrape -> {
+                    Assertions.assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+                    Assertions.assertTrue(scrape.contains("uri=\"/shows\""));
+                    Assertions.assertTrue(scrape.contains("status=\"200\""));
+                });
+    }
+
+    @Test
+    void prometheusEndpoint_OnThePublicPort_IsRefused() {
+        webTestClient.get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    private WebTestClient managementWebTestClient() {
+        return WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + managementPort)
+                .build();
+    }
+}
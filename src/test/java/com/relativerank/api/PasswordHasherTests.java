@@ -0,0 +1,90 @@
+package com.relativerank.api;
+
+import com.relativerank.api.db.User;
+import com.relativerank.api.security.HmacSha512PasswordEncoder;
+import com.relativerank.api.security.PasswordHasher;
+import com.relativerank.api.security.PasswordHashingUnavailableException;
+import com.relativerank.api.util.ExecutionSchedulers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.CountDownLatch;
+
+public class PasswordHasherTests {
+
+    @Test
+    void hashPassword_MatchesPbkdf2HmacSha512TestVectors() throws NoSuchAlgorithmException, InvalidKeySpecException {
+        var passwordEncoder = new HmacSha512PasswordEncoder();
+        var salt = "salt".getBytes(StandardCharsets.UTF_8);
+
+        Assertions.assertEquals("867f70cf1ade02cff3752599a3a53dc4af34c7a669815ae5d513554e1c8cf252"
+                        + "c02d470a285a0501bad999bfe943c08f050235d7d68b1da55e63f73b60a57fce",
+                hex(passwordEncoder.hashPassword("password", salt, 1)));
+        Assertions.assertEquals("e1d9c16aa681708a45f5c7c4e215ceb66e011a2e9f0040713f18aefdb866d53c"
+                        + "f76cab2868a39b9f7840edce4fef5a82be67335c77a6068e04112754f27ccf4e",
+                hex(passwordEncoder.hashPassword("password", salt, 2)));
+    }
+
+    @Test
+    void matches_WhenUserHasLegacyHash_MatchesAndNeedsRehash() throws NoSuchAlgorithmException, InvalidKeyException {
+        var passwordEncoder = new HmacSha512PasswordEncoder();
+        var meterRegistry = new SimpleMeterRegistry();
+        var passwordHasher = new PasswordHasher(passwordEncoder,
+                new ExecutionSchedulers(meterRegistry, "platform", 64, 100000), meterRegistry, 1, 1, 100);
+        var salt = passwordEncoder.generateRandomSalt();
+        var legacyUser = new User("id", "username", passwordEncoder.hmacSha512HashPassword("password", salt), salt, null);
+
+        StepVerifier.create(passwordHasher.matches("password", legacyUser)).expectNext(true).verifyComplete();
+        StepVerifier.create(passwordHasher.matches("wrong", legacyUser)).expectNext(false).verifyComplete();
+        Assertions.assertTrue(passwordHasher.needsRehash(legacyUser));
+
+        var hashedPassword = passwordHasher.hash("password").block();
+        var upgradedUser = new User("id", "username", hashedPassword.hash(), hashedPassword.salt(), hashedPassword.iterations());
+        StepVerifier.create(passwordHasher.matches("password", upgradedUser)).expectNext(true).verifyComplete();
+        Assertions.assertFalse(passwordHasher.needsRehash(upgradedUser));
+    }
+
+    @Test
+    void hash_WhenThreadsAndQueueAreFull_FailsWithPasswordHashingUnavailable() {
+        var release = new CountDownLatch(1);
+        var passwordEncoder = new HmacSha512PasswordEncoder() {
+            @Override
+            public byte[] hashPassword(String password, byte[] salt, int iterations) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new byte[0];
+            }
+        };
+        var meterRegistry = new SimpleMeterRegistry();
+        var passwordHasher = new PasswordHasher(passwordEncoder,
+                new ExecutionSchedulers(meterRegistry, "platform", 64, 100000), meterRegistry, 1, 1, 1);
+
+        var running = passwordHasher.hash("running").toFuture();
+        var queued = passwordHasher.hash("queued").toFuture();
+        StepVerifier.create(passwordHasher.hash("rejected"))
+                .expectError(PasswordHashingUnavailableException.class)
+                .verify();
+
+        release.countDown();
+        Assertions.assertNotNull(running.join());
+        Assertions.assertNotNull(queued.join());
+    }
+
+    private static String hex(byte[] bytes) {
+        var hex = new StringBuilder(bytes.length * 2);
+        for (var b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+}
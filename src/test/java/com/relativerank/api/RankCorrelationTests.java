@@ -0,0 +1,66 @@
+package com.relativerank.api;
+
+import com.relativerank.api.util.RankCorrelation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class RankCorrelationTests {
+
+    @Test
+    void kendallTau_MatchesPairwiseComparison_ForShuffledLists() {
+        var random = new Random(42);
+        var showNames = new ArrayList<String>();
+        for (var i = 0; i < 500; i++) {
+            showNames.add("show " + i);
+        }
+
+        for (var trial = 0; trial < 20; trial++) {
+            var otherShowNames = new ArrayList<>(showNames.subList(0, 300 + random.nextInt(200)));
+            Collections.shuffle(otherShowNames, random);
+
+            var sharedRanks = RankCorrelation.sharedRanks(showNames, otherShowNames);
+            Assertions.assertEquals(pairwiseKendallTau(sharedRanks.ranksB()), RankCorrelation.kendallTau(sharedRanks), 1e-9);
+        }
+    }
+
+    @Test
+    void largestDisagreements_IgnoresShowsOnlyOneListHas() {
+        var sharedRanks = RankCorrelation.sharedRanks(
+                List.of("Love Live", "Idoly Pride", "Yuru Camp", "K-On"),
+                List.of("Eva", "Gundam", "Love Live", "Idoly Pride", "K-On", "Yuru Camp"));
+
+        // raw positions are two apart for every show, but only the last two swapped within the intersection
+        Assertions.assertEquals(List.of(2, 3), RankCorrelation.largestDisagreements(sharedRanks, 10));
+    }
+
+    @Test
+    void kendallTau_And_Spearman_AreOne_ForIdenticalOrder() {
+        var sharedRanks = RankCorrelation.sharedRanks(
+                List.of("Love Live", "Idoly Pride", "Yuru Camp"),
+                List.of("Love Live", "Eva", "Idoly Pride", "Yuru Camp"));
+
+        Assertions.assertEquals(1, RankCorrelation.kendallTau(sharedRanks), 1e-9);
+        Assertions.assertEquals(1, RankCorrelation.spearman(sharedRanks), 1e-9);
+    }
+
+    private static double pairwiseKendallTau(int[] ranks) {
+        long concordant = 0;
+        long discordant = 0;
+        for (var i = 0; i < ranks.length; i++) {
+            for (var j = i + 1; j < ranks.length; j++) {
+                if (ranks[i] < ranks[j]) {
+                    concordant++;
+                } else {
+                    discordant++;
+                }
+            }
+        }
+
+        return (double) (concordant - discordant) / (concordant + discordant);
+    }
+}
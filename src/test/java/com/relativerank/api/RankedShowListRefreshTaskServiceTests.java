@@ -4,13 +4,20 @@ import com.relativerank.api.db.GlobalRankedShowList;
 import com.relativerank.api.db.RankedShow;
 import com.relativerank.api.db.Show;
 import com.relativerank.api.db.ShowList;
+import com.relativerank.api.repositories.DocumentShowListStore;
 import com.relativerank.api.repositories.GlobalRankedShowListRepository;
 import com.relativerank.api.repositories.ShowListRepository;
 import com.relativerank.api.repositories.ShowRepository;
+import com.relativerank.api.util.ExecutionSchedulers;
 import com.relativerank.api.util.RankedShowListRefreshTaskService;
+import com.relativerank.api.util.ShowCache;
+import com.relativerank.api.util.ShowRecommendationIndex;
+import com.relativerank.api.util.SimilarTasteIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -26,11 +33,14 @@ public class RankedShowListRefreshTaskServiceTests {
 
         var showListRefreshService = new RankedShowListRefreshTaskService(
                 globalRankedShowListRepository,
-                showListRepository,
-                showRepository);
+                new DocumentShowListStore(showListRepository, Mockito.mock(ReactiveMongoTemplate.class)),
+                new ShowCache(showRepository, new SimpleMeterRegistry(), 100),
+                new SimilarTasteIndex(100, 16, 4, 200),
+                new ShowRecommendationIndex(50, 50),
+                new ExecutionSchedulers(new SimpleMeterRegistry(), "platform", 64, 100000));
 
         var evaRanked = new RankedShow("Eva", 1, 0.5);
-        var userShowList = new ShowList("id", "Shinji", Collections.singletonList(evaRanked));
+        var userShowList = new ShowList("id", "Shinji", Collections.singletonList(evaRanked), 1L);
         Mockito.when(showListRepository.findAll()).thenReturn(Flux.just(userShowList));
 
         var eva = new Show("id", "Eva");
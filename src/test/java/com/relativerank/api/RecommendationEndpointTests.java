@@ -0,0 +1,48 @@
+package com.relativerank.api;
+
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.dto.ProblemDetails;
+import com.relativerank.api.dto.ShowRecommendation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public class RecommendationEndpointTests extends EndpointTestsBase {
+
+    @Test
+    void getRecommendationsEndpoint_WhenShowListExistsForUsername_Returns200_OkStatus_WithUnrankedShowsOrderedByCoOccurrence() {
+        var rebuild = showRecommendationIndex.startRebuild();
+        rebuild.add(ShowList.rankShowNames(List.of("Love Live", "Idoly Pride", "Yuru Camp")));
+        rebuild.add(ShowList.rankShowNames(List.of("Love Live", "Idoly Pride")));
+        rebuild.add(ShowList.rankShowNames(List.of("Eva", "Gundam")));
+        rebuild.complete();
+
+        var username = "Honoka";
+        Mockito.when(showListRepository.findByUsername(username))
+                .thenReturn(Mono.just(new ShowList("id", username, ShowList.rankShowNames(List.of("Love Live")), 1L)));
+
+        webTestClient.get()
+                .uri("/recommendations/" + username)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ShowRecommendation.class)
+                .value(body -> Assertions.assertEquals(
+                        List.of("Idoly Pride", "Yuru Camp"),
+                        body.stream().map(ShowRecommendation::name).toList()));
+    }
+
+    @Test
+    void getRecommendationsEndpoint_WhenShowListDoesNotExistForUsername_Returns404_NotFoundStatus_WithResponseBodyContainingProblemDetails() {
+        Mockito.when(showListRepository.findByUsername("Honoka")).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri("/recommendations/Honoka")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ProblemDetails.class)
+                .value(body -> Assertions.assertEquals("show list does not exist for provided username", body.detail()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.relativerank.api;
+
+import com.relativerank.api.db.Show;
+import com.relativerank.api.db.ShowList;
+import com.relativerank.api.repositories.ShowRepository;
+import com.relativerank.api.util.ServerTiming;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.List;
+
+@TestPropertySource(properties = "server-timing.enabled=true")
+public class ServerTimingEndpointTests extends EndpointTestsBase {
+
+    @Autowired
+    @Qualifier("serverTimingRepositoryPostProcessor")
+    private BeanPostProcessor serverTimingRepositoryPostProcessor;
+
+    @Test
+    void getAllShowsEndpoint_WhenServerTimingIsEnabled_Returns200_OkStatus_WithServerTimingHeader() {
+        Mockito.when(showRepository.findAll()).thenReturn(Flux.just(new Show("id", "Shingeki no Kyojin")));
+
+        webTestClient.get()
+                .uri("/shows")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("Server-Timing", serverTiming -> {
+                    Assertions.assertTrue(serverTiming.contains("encode;dur="));
+                    Assertions.assertTrue(serverTiming.matches(".*total;dur=\\d+\\.\\d$"));
+                });
+    }
+
+    @Test
+    void getShowListEndpoint_WhenServerTimingIsEnabled_Returns200_OkStatus_WithMongoSpanFromTheShowListStore() {
+        var showList = new ShowList("id", "Honoka", ShowList.rankShowNames(List.of("Love Live")), 1L);
+        Mockito.when(showListRepository.findByUsername("Honoka")).thenReturn(Mono.just(showList));
+
+        webTestClient.get()
+                .uri("/show-lists/Honoka")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("Server-Timing", serverTiming -> {
+                    Assertions.assertTrue(serverTiming.contains("mongo;dur="));
+                    Assertions.assertTrue(serverTiming.contains("encode;dur="));
+                });
+    }
+
+    @Test
+    void serverTimingRepositoryPostProcessor_TimesRepositoryCallsAsMongo() {
+        // mocked repositories are registered after post processing, so /shows cannot show this end to end in tests
+        Mockito.when(showRepository.findAll()).thenReturn(Flux.just(new Show("id", "Shingeki no Kyojin")));
+        var timedShowRepository = (ShowRepository) serverTimingRepositoryPostProcessor
+                .postProcessAfterInitialization(showRepository, "showRepository");
+
+        var serverTiming = new ServerTiming();
+        timedShowRepository.findAll().contextWrite(Context.of(ServerTiming.class, serverTiming)).blockLast();
+
+        Assertions.assertTrue(serverTiming.header().startsWith("mongo;dur="));
+    }
+}
@@ -0,0 +1,69 @@
+package com.relativerank.api;
+
+import com.relativerank.api.db.Show;
+import com.relativerank.api.repositories.ShowRepository;
+import com.relativerank.api.util.ShowCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class ShowCacheTests {
+
+    private final ShowRepository showRepository = Mockito.mock(ShowRepository.class);
+
+    private final ShowCache showCache = new ShowCache(showRepository, new SimpleMeterRegistry(), 100);
+
+    @Test
+    void findById_WhenCached_DoesNotReadTheRepositoryAgain() {
+        var show = new Show("id", "Eva");
+        Mockito.when(showRepository.findById("id")).thenReturn(Mono.just(show));
+
+        Assertions.assertEquals(show, showCache.findById("id").block());
+        Assertions.assertEquals(show, showCache.findById("id").block());
+        Assertions.assertEquals(show, showCache.findByName("Eva").block());
+
+        Mockito.verify(showRepository, Mockito.times(1)).findById("id");
+        Mockito.verify(showRepository, Mockito.never()).findByName(Mockito.anyString());
+    }
+
+    @Test
+    void findByName_WhenTheShowDoesNotExist_ReturnsEmptyAndCachesNothing() {
+        Mockito.when(showRepository.findByName("Eva")).thenReturn(Mono.empty());
+
+        Assertions.assertNull(showCache.findByName("Eva").block());
+        Assertions.assertNull(showCache.findByName("Eva").block());
+
+        Mockito.verify(showRepository, Mockito.times(2)).findByName("Eva");
+    }
+
+    @Test
+    void findById_AfterInvalidate_ReadsTheRenamedShow() {
+        Mockito.when(showRepository.findById("id"))
+                .thenReturn(Mono.just(new Show("id", "Eva")), Mono.just(new Show("id", "Evangelion")));
+        Mockito.when(showRepository.findByName("Eva")).thenReturn(Mono.empty());
+
+        showCache.findById("id").block();
+        showCache.invalidate("id", "Eva");
+
+        Assertions.assertEquals("Evangelion", showCache.findById("id").block().name());
+        Assertions.assertNull(showCache.findByName("Eva").block());
+    }
+
+    @Test
+    void findById_WhenInvalidatedWhileReading_DoesNotCacheTheStaleShow() {
+        var staleRead = Sinks.<Show>one();
+        Mockito.when(showRepository.findById("id"))
+                .thenReturn(staleRead.asMono(), Mono.just(new Show("id", "Evangelion")));
+
+        var staleShow = showCache.findById("id").toFuture();
+        // the rename commits and invalidates before the read that started earlier returns
+        showCache.invalidate("id", "Eva");
+        staleRead.tryEmitValue(new Show("id", "Eva"));
+
+        Assertions.assertEquals("Eva", staleShow.join().name());
+        Assertions.assertEquals("Evangelion", showCache.findById("id").block().name());
+    }
+}
@@ -1,9 +1,20 @@
 package com.relativerank.api;
 
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.relativerank.api.db.RankedShow;
 import com.relativerank.api.db.Show;
 import com.relativerank.api.dto.MalShowDetails;
 import com.relativerank.api.dto.ProblemDetails;
+import com.relativerank.api.dto.ShowBatchRequest;
+import com.relativerank.api.dto.ShowBatchResult;
+import com.relativerank.api.dto.ShowResolveResponse;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.bson.BsonString;
+import org.bson.Document;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -15,6 +26,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ShowEndpointTests extends EndpointTestsBase {
 
@@ -38,6 +50,21 @@ class ShowEndpointTests extends EndpointTestsBase {
 				});
 	}
 
+	@Test
+	void getAllShowsEndpoint_WhenAuthorizationHeaderIsNotAValidJwt_Returns200_OkStatus() {
+		var show = new Show(null, "Shingeki no Kyojin");
+
+		Mockito.when(showRepository.findAll()).thenReturn(Flux.just(show));
+
+		webTestClient.get()
+				.uri("/shows")
+				.header("Authorization", "Bearer garbage")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(new ParameterizedTypeReference<List<Show>>() {})
+				.value(showsResponse -> Assertions.assertEquals(List.of(show), showsResponse));
+	}
+
 	@Test
 	void getAllShowsEndpoint_WhenShowNameQueryParamIsIncluded_Returns200_OkStatus_WithResponseBodyContainingMatchingShows() {
 		var show = new Show(null, "Shingeki no Kyojin");
@@ -229,12 +256,59 @@ class ShowEndpointTests extends EndpointTestsBase {
 				.value(showResponse -> Assertions.assertEquals("No show found for id: " + showId, showResponse));
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	void batchUpsertShowsEndpoint_WhenUserIsAdmin_Returns200_OkStatus_WithResponseBodyContainingPerShowResults() {
+		var newShow = new ShowBatchRequest(null, "Shingeki no Kyojin");
+		var upsertedShow = new ShowBatchRequest("upserted-id", "Neon Genesis Evangelion");
+		var updatedShow = new ShowBatchRequest("updated-id", "Yuru Camp");
+
+		var collection = (MongoCollection<Document>) Mockito.mock(MongoCollection.class);
+		var writeResult = Mockito.mock(BulkWriteResult.class);
+		Mockito.when(writeResult.getUpserts()).thenReturn(List.of(new BulkWriteUpsert(1, new BsonString("upserted-id"))));
+		Mockito.when(reactiveMongoTemplate.getCollectionName(Show.class)).thenReturn("show");
+		Mockito.when(reactiveMongoTemplate.getCollection("show")).thenReturn(Mono.just(collection));
+		Mockito.when(collection.bulkWrite(ArgumentMatchers.anyList(), ArgumentMatchers.any())).thenReturn(Mono.just(writeResult));
+
+		var adminJwt = jwtEncoder.encodeUserJwt(adminUsername);
+		webTestClient.post()
+				.uri("/shows/batch")
+				.header("Authorization", "Bearer " + adminJwt)
+				.body(Mono.just(List.of(newShow, upsertedShow, updatedShow)), new ParameterizedTypeReference<List<ShowBatchRequest>>() {})
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(new ParameterizedTypeReference<List<ShowBatchResult>>() {})
+				.value(results -> {
+					Assertions.assertEquals(3, results.size());
+					Assertions.assertEquals("created", results.get(0).status());
+					Assertions.assertNotNull(results.get(0).id());
+					Assertions.assertEquals(new ShowBatchResult("upserted-id", upsertedShow.name(), "created"), results.get(1));
+					Assertions.assertEquals(new ShowBatchResult("updated-id", updatedShow.name(), "updated"), results.get(2));
+				});
+	}
+
+	@Test
+	void resolveShowNamesEndpoint_Returns200_OkStatus_WithResponseBodyContainingResolvedAndUnresolvedNames() {
+		var show = new Show("id", "Shingeki no Kyojin");
+
+		Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(), ArgumentMatchers.eq(Show.class)))
+				.thenReturn(Flux.just(show));
+
+		webTestClient.post()
+				.uri("/shows/resolve")
+				.body(Mono.just(List.of(show.name(), "Not A Show")), new ParameterizedTypeReference<List<String>>() {})
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(ShowResolveResponse.class)
+				.value(response -> {
+					Assertions.assertEquals(show.id(), response.resolved().get(show.name()));
+					Assertions.assertEquals(List.of("Not A Show"), response.unresolved());
+				});
+	}
+
 	@Test
 	void importFromMalEndpoint_ReturnsUsersMalList() {
-		mockWebServer.enqueue(new MockResponse().setBody(TestConstants.onePageMalListJsonString)
-				.addHeader("Content-Type", "application/json"));
-		mockWebServer.enqueue(new MockResponse().setBody("[]")
-				.addHeader("Content-Type", "application/json"));
+		dispatchMalPages(List.of(TestConstants.onePageMalListJsonString), 0);
 
 		webTestClient.get()
 				.uri("/import-from-mal?username=MP7373")
@@ -247,12 +321,65 @@ class ShowEndpointTests extends EndpointTestsBase {
 	}
 
 	@Test
-	void importFromMalEndpoint_WhenNotPassedUsernameQueryParam_Returns404_NotFoundStatus_WithResponseBodySayingUsernameQueryParamRequired() {
-		mockWebServer.enqueue(new MockResponse().setBody(TestConstants.onePageMalListJsonString)
-				.addHeader("Content-Type", "application/json"));
-		mockWebServer.enqueue(new MockResponse().setBody("[]")
-				.addHeader("Content-Type", "application/json"));
+	void importFromMalEndpoint_WhenListSpansSeveralSlowPages_ReturnsShowsFromEveryPageInOffsetOrder() {
+		var pages = List.of(
+				"[{\"anime_title\":\"Love Live\",\"score\":9,\"status\":2}]",
+				"[{\"anime_title\":\"Idoly Pride\",\"score\":9,\"status\":2}]",
+				"[{\"anime_title\":\"Yuru Camp\",\"score\":9,\"status\":2}]");
+		dispatchMalPages(pages, 200);
+
+		webTestClient.get()
+				.uri("/import-from-mal?username=MP7373")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(new ParameterizedTypeReference<List<RankedShow>>() {})
+				.value(showsResponse -> Assertions.assertEquals(
+						List.of("Love Live", "Idoly Pride", "Yuru Camp"),
+						showsResponse.stream().map(RankedShow::name).toList()));
+	}
+
+	@Test
+	void importShowList_WhenSameUsernameIsImportedConcurrentlyAndAgain_CrawlsMalOnce() {
+		var crawlsStarted = dispatchMalPages(List.of(TestConstants.onePageMalListJsonString), 200);
+
+		var concurrentImports = Mono.zip(
+				malImportService.importShowList("MP7373"),
+				malImportService.importShowList("mp7373")).block();
+		var repeatedImport = malImportService.importShowList("MP7373").block();
 
+		Assertions.assertEquals(1, crawlsStarted.get());
+		Assertions.assertEquals(concurrentImports.getT1(), concurrentImports.getT2());
+		Assertions.assertEquals(concurrentImports.getT1(), repeatedImport);
+	}
+
+	@Test
+	void importFromMalEndpoint_WhenMalFailsTransiently_RetriesAndReturnsUsersMalList() {
+		var firstPageAttempts = new AtomicInteger();
+		mockWebServer.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				var offset = Integer.parseInt(request.getRequestUrl().queryParameter("offset"));
+				if (offset == 0 && firstPageAttempts.incrementAndGet() <= 2) {
+					return new MockResponse().setResponseCode(firstPageAttempts.get() == 1 ? 503 : 429);
+				}
+
+				return new MockResponse().setBody(offset == 0 ? TestConstants.onePageMalListJsonString : "[]")
+						.addHeader("Content-Type", "application/json");
+			}
+		});
+
+		webTestClient.get()
+				.uri("/import-from-mal?username=MP7373")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(new ParameterizedTypeReference<List<RankedShow>>() {})
+				.value(showsResponse -> Assertions.assertEquals(243, showsResponse.size()));
+
+		Assertions.assertEquals(3, firstPageAttempts.get());
+	}
+
+	@Test
+	void importFromMalEndpoint_WhenNotPassedUsernameQueryParam_Returns404_NotFoundStatus_WithResponseBodySayingUsernameQueryParamRequired() {
 		webTestClient.get()
 				.uri("/import-from-mal")
 				.exchange()
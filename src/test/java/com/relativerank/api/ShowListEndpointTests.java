@@ -1,14 +1,32 @@
 package com.relativerank.api;
 
 import com.relativerank.api.db.RankedShow;
+import com.relativerank.api.db.Show;
 import com.relativerank.api.db.ShowList;
+import com.relativerank.api.db.ShowListSlice;
 import com.relativerank.api.db.User;
 import com.relativerank.api.dto.ProblemDetails;
+import com.relativerank.api.dto.ShowListComparison;
+import com.relativerank.api.dto.ShowListOperation;
+import com.relativerank.api.dto.ShowListQueryRequest;
+import com.relativerank.api.dto.ShowRankDisagreement;
+import com.relativerank.api.dto.SimilarUser;
+import com.relativerank.api.util.ContentNegotiation;
+import org.bson.Document;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Collections;
@@ -20,7 +38,7 @@ public class ShowListEndpointTests extends EndpointTestsBase {
     void getShowListEndpoint_WhenShowListExistsForUsername_Returns200_OkStatus_WithResponseBodyContainingShowList() {
         var username = "Honoka";
         var rankedShow = new RankedShow("Love Live", 1, 0.5);
-        var showList = new ShowList("id", username, Collections.singletonList(rankedShow));
+        var showList = new ShowList("id", username, Collections.singletonList(rankedShow), 1L);
 
         Mockito.when(showListRepository.findByUsername(username)).thenReturn(Mono.just(showList));
 
@@ -32,6 +50,155 @@ public class ShowListEndpointTests extends EndpointTestsBase {
                 .value(body -> Assertions.assertEquals(showList, body));
     }
 
+    @Test
+    void getShowListEndpoint_WhenSmileIsAccepted_Returns200_OkStatus_WithSmileEncodedShowList() {
+        var username = "Honoka";
+        var showList = new ShowList("id", username, ShowList.rankShowNames(List.of("Love Live", "Idoly Pride")), 1L);
+
+        Mockito.when(showListRepository.findByUsername(username)).thenReturn(Mono.just(showList));
+
+        webTestClient.get()
+                .uri("/show-lists/" + username)
+                .accept(ContentNegotiation.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(ContentNegotiation.APPLICATION_SMILE)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(ShowList.class)
+                .value(body -> Assertions.assertEquals(showList, body));
+    }
+
+    @Test
+    void getShowListEndpoint_WhenOnlyUnsupportedTypesAreAccepted_Returns406_NotAcceptableStatus_WithResponseBodyContainingProblemDetails() {
+        webTestClient.get()
+                .uri("/show-lists/Honoka")
+                .accept(MediaType.APPLICATION_XML, MediaType.TEXT_HTML)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE)
+                .expectBody(ProblemDetails.class)
+                .value(body -> Assertions.assertEquals("not acceptable", body.title()));
+
+        Mockito.verify(showListRepository, Mockito.never()).findByUsername(ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void getShowListsEndpoint_WhenUsernamesAreProvided_Returns200_OkStatus_WithResponseBodyContainingShowListSlicesKeyedByUsername() {
+        var honokaSlice = new ShowListSlice("Honoka", 3L, 4, ShowList.rankShowNames(List.of("Love Live"), 4));
+        var umiSlice = new ShowListSlice("Umi", 1L, 2, ShowList.rankShowNames(List.of("Idoly Pride"), 2));
+
+        Mockito.when(reactiveMongoTemplate.aggregate(
+                ArgumentMatchers.any(Aggregation.class),
+                ArgumentMatchers.eq(ShowList.class),
+                ArgumentMatchers.eq(ShowListSlice.class))).thenReturn(Flux.just(honokaSlice, umiSlice));
+
+        webTestClient.get()
+                .uri("/show-lists?usernames=Honoka,Umi&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ShowListSlice.class)
+                .value(body -> Assertions.assertEquals(List.of(honokaSlice, umiSlice), body));
+    }
+
+    @Test
+    void getShowListsEndpoint_WhenOnlyUnsupportedTypesAreAccepted_Returns406_NotAcceptableStatus_WithResponseBodyContainingProblemDetails() {
+        webTestClient.get()
+                .uri("/show-lists?usernames=a")
+                .accept(MediaType.APPLICATION_XML)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE)
+                .expectBody(ProblemDetails.class)
+                .value(body -> Assertions.assertEquals("not acceptable", body.title()));
+
+        Mockito.verify(reactiveMongoTemplate, Mockito.never()).aggregate(
+                ArgumentMatchers.any(Aggregation.class),
+                ArgumentMatchers.eq(ShowList.class),
+                ArgumentMatchers.eq(ShowListSlice.class));
+    }
+
+    @Test
+    void queryShowListsEndpoint_WhenNoUsernamesAreProvided_Returns400_BadRequestStatus_WithResponseBodyContainingProblemDetails() {
+        webTestClient.post()
+                .uri("/show-lists/query")
+                .bodyValue(new ShowListQueryRequest(List.of(), null))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ProblemDetails.class)
+                .value(body -> {
+                    Assertions.assertEquals("400", body.status());
+                    Assertions.assertEquals("at least one username is required", body.detail());
+                });
+    }
+
+    @Test
+    void getSimilarUsersEndpoint_WhenShowListExistsForUsername_Returns200_OkStatus_WithResponseBodyContainingUsersWithOverlappingTaste() {
+        similarTasteIndex.index(new ShowList("id1", "Honoka",
+                ShowList.rankShowNames(List.of("Love Live", "Idoly Pride", "Yuru Camp", "K-On")), 1L));
+        similarTasteIndex.index(new ShowList("id2", "Umi",
+                ShowList.rankShowNames(List.of("Love Live", "Idoly Pride", "K-On", "Yuru Camp")), 1L));
+        similarTasteIndex.index(new ShowList("id3", "Shinji",
+                ShowList.rankShowNames(List.of("Eva", "Gundam")), 1L));
+
+        webTestClient.get()
+                .uri("/show-lists/Honoka/similar")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(SimilarUser.class)
+                .value(body -> {
+                    Assertions.assertEquals(1, body.size());
+                    Assertions.assertEquals("Umi", body.get(0).username());
+                    Assertions.assertEquals(4, body.get(0).sharedShows());
+                    Assertions.assertEquals(0.9, body.get(0).similarity(), 1e-9);
+                });
+    }
+
+    @Test
+    void getSimilarUsersEndpoint_WhenShowListDoesNotExistForUsername_Returns404_NotFoundStatus_WithResponseBodyContainingProblemDetails() {
+        Mockito.when(showListRepository.findByUsername("Honoka")).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri("/show-lists/Honoka/similar")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ProblemDetails.class)
+                .value(body -> Assertions.assertEquals("show list does not exist for provided username", body.detail()));
+    }
+
+    @Test
+    void compareShowListsEndpoint_WhenBothShowListsExist_Returns200_OkStatus_WithCorrelationsOverSharedShows() {
+        Mockito.when(showListRepository.findByUsername("Honoka")).thenReturn(Mono.just(new ShowList("id1", "Honoka",
+                ShowList.rankShowNames(List.of("Love Live", "Idoly Pride", "Yuru Camp", "K-On")), 1L)));
+        Mockito.when(showListRepository.findByUsername("Umi")).thenReturn(Mono.just(new ShowList("id2", "Umi",
+                ShowList.rankShowNames(List.of("K-On", "Idoly Pride", "Love Live", "Eva")), 1L)));
+
+        webTestClient.get()
+                .uri("/show-lists/compare?a=Honoka&b=Umi")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ShowListComparison.class)
+                .value(body -> {
+                    Assertions.assertEquals(3, body.sharedShows());
+                    Assertions.assertEquals(-1, body.kendallTau(), 1e-9);
+                    Assertions.assertEquals(-1, body.spearman(), 1e-9);
+                    Assertions.assertEquals(List.of(
+                            new ShowRankDisagreement("Love Live", 1, 3),
+                            new ShowRankDisagreement("K-On", 4, 1)), body.disagreements());
+                });
+    }
+
+    @Test
+    void compareShowListsEndpoint_WhenOneShowListDoesNotExist_Returns404_NotFoundStatus_WithResponseBodyContainingProblemDetails() {
+        Mockito.when(showListRepository.findByUsername("Honoka")).thenReturn(Mono.just(new ShowList("id1", "Honoka",
+                ShowList.rankShowNames(List.of("Love Live")), 1L)));
+        Mockito.when(showListRepository.findByUsername("Umi")).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri("/show-lists/compare?a=Honoka&b=Umi")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ProblemDetails.class)
+                .value(body -> Assertions.assertEquals("show list does not exist for both provided usernames", body.detail()));
+    }
+
     @Test
     void getShowListEndpoint_WhenShowListDoesNotExistForUsername_Returns404_NotFoundStatus_WithResponseBodyContainingProblemDetails() {
         var username = "Honoka";
@@ -55,18 +222,18 @@ public class ShowListEndpointTests extends EndpointTestsBase {
         var username = "Honoka";
         var preUpdateRankedShow = new RankedShow("Love Live", 1, 0.5);
         var preUpdateRankedShows = Collections.singletonList(preUpdateRankedShow);
-        var preUpdateShowList = new ShowList("id", username, preUpdateRankedShows);
+        var preUpdateShowList = new ShowList("id", username, preUpdateRankedShows, 1L);
 
         var newListRankedShow1 = new RankedShow("Love Live", 1, 0.666);
         var newListRankedShow2 = new RankedShow("Idoly Pride", 2, 0.333);
         var newRankedShowList = List.of(newListRankedShow1, newListRankedShow2);
-        var newShowList = new ShowList(preUpdateShowList.id(), username, newRankedShowList);
+        var newShowList = new ShowList(preUpdateShowList.id(), username, newRankedShowList, 2L);
 
-        Mockito.when(showListRepository.findByUsername(ArgumentMatchers.any())).thenReturn(Mono.just(preUpdateShowList));
-        Mockito.when(showListRepository.save(new ShowList(
-                preUpdateShowList.id(),
-                preUpdateShowList.username(),
-                newRankedShowList))).thenReturn(Mono.just(newShowList));
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class))).thenReturn(Mono.just(newShowList));
 
         var userJwt = jwtEncoder.encodeUserJwt(username);
         webTestClient.put()
@@ -75,6 +242,7 @@ public class ShowListEndpointTests extends EndpointTestsBase {
                 .body(Mono.just(newRankedShowList), new ParameterizedTypeReference<List<RankedShow>>() {})
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"2\"")
                 .expectBody(ShowList.class)
                 .value(body -> {
                     Assertions.assertEquals(preUpdateShowList.id(), body.id());
@@ -83,18 +251,58 @@ public class ShowListEndpointTests extends EndpointTestsBase {
                 });
     }
 
+    @Test
+    void upsertShowList_WhenBodyAndResponseAreCbor_Returns200_OkStatus_WithCborEncodedShowList() {
+        var username = "Honoka";
+        var newRankedShowList = ShowList.rankShowNames(List.of("Love Live", "Idoly Pride"));
+        var newShowList = new ShowList("id", username, newRankedShowList, 2L);
+
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class))).thenReturn(Mono.just(newShowList));
+
+        webTestClient.put()
+                .uri("/show-lists/" + username)
+                .header("Authorization", "Bearer " + jwtEncoder.encodeUserJwt(username))
+                .contentType(ContentNegotiation.APPLICATION_CBOR)
+                .accept(ContentNegotiation.APPLICATION_CBOR)
+                .body(Mono.just(newRankedShowList), new ParameterizedTypeReference<List<RankedShow>>() {})
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(ContentNegotiation.APPLICATION_CBOR)
+                .expectBody(ShowList.class)
+                .value(body -> Assertions.assertEquals(newShowList, body));
+
+        // the decoded request body is what gets written
+        var update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        Mockito.verify(reactiveMongoTemplate).findAndModify(
+                ArgumentMatchers.any(Query.class),
+                update.capture(),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class));
+        var setFields = (Document) update.getValue().getUpdateObject().get("$set");
+        Assertions.assertEquals(newRankedShowList, setFields.get("showList"));
+    }
+
     @Test
     void upsertShowList_WhenShowListExistsForUsername_AndShowListIsInValid_Returns400_BadRequestStatus_WithResponseBodyContainingProblemDetails() {
         var username = "Honoka";
         var preUpdateRankedShow = new RankedShow("Love Live", 1, 0.5);
         var preUpdateRankedShows = Collections.singletonList(preUpdateRankedShow);
-        var preUpdateShowList = new ShowList("id", username, preUpdateRankedShows);
+        var preUpdateShowList = new ShowList("id", username, preUpdateRankedShows, 1L);
 
         var newListRankedShow1 = new RankedShow("Love Live", 1, 0.7);
         var newListRankedShow2 = new RankedShow("Idoly Pride", 2, 0.2);
         var invalidList = List.of(newListRankedShow1, newListRankedShow2);
 
-        Mockito.when(showListRepository.findByUsername(ArgumentMatchers.any())).thenReturn(Mono.just(preUpdateShowList));
+        // were the list written, the stored document would come back as the existing list
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class))).thenReturn(Mono.just(preUpdateShowList));
 
         var userJwt = jwtEncoder.encodeUserJwt(username);
         webTestClient.put()
@@ -107,6 +315,133 @@ public class ShowListEndpointTests extends EndpointTestsBase {
                 .value(body -> {
                     Assertions.assertEquals("bad request", body.title());
                     Assertions.assertEquals("400", body.status());
+                    Assertions.assertTrue(body.detail().startsWith("show percentile rank at index: 0"));
+                });
+
+        Mockito.verify(reactiveMongoTemplate, Mockito.never()).findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class));
+    }
+
+    @Test
+    void upsertCompactShowList_WhenShowListExistsForUsername_Returns200_OkStatus_WithResponseBodyContainingDerivedRanks() {
+        var username = "Honoka";
+        var idolyPride = new Show("idoly-pride-id", "Idoly Pride");
+        var expectedRankedShows = ShowList.rankShowNames(List.of("Love Live", idolyPride.name()));
+        var expectedShowList = new ShowList("id", username, expectedRankedShows, 1L);
+
+        Mockito.when(reactiveMongoTemplate.find(ArgumentMatchers.any(), ArgumentMatchers.eq(Show.class)))
+                .thenReturn(Flux.just(idolyPride));
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class))).thenReturn(Mono.just(expectedShowList));
+
+        var userJwt = jwtEncoder.encodeUserJwt(username);
+        webTestClient.put()
+                .uri("/show-lists/" + username + "/compact")
+                .header("Authorization", "Bearer " + userJwt)
+                .body(Mono.just(List.of("Love Live", idolyPride.id())), new ParameterizedTypeReference<List<String>>() {})
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ShowList.class)
+                .value(body -> Assertions.assertEquals(expectedRankedShows, body.showList()));
+    }
+
+    @Test
+    void upsertCompactShowList_WhenJwtUsernameDoesNotMatchPathUsername_Returns403_ForbiddenStatus() {
+        var userJwt = jwtEncoder.encodeUserJwt("Umi");
+        webTestClient.put()
+                .uri("/show-lists/Honoka/compact")
+                .header("Authorization", "Bearer " + userJwt)
+                .body(Mono.just(List.of("Love Live")), new ParameterizedTypeReference<List<String>>() {})
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    void patchShowList_WhenShowListExistsForUsername_AndOperationsAreValid_Returns200_OkStatus_WithResponseBodyContainingRenormalizedShowList() {
+        var username = "Honoka";
+        var existingShowList = new ShowList("id", username,
+                ShowList.rankShowNames(List.of("Love Live", "Idoly Pride", "Yuru Camp")), 1L);
+        var patchedRankedShows = ShowList.rankShowNames(List.of("Yuru Camp", "Love Live", "Non Non Biyori"));
+        var patchedShowList = new ShowList(existingShowList.id(), username, patchedRankedShows, 2L);
+
+        Mockito.when(showListRepository.findByUsername(username)).thenReturn(Mono.just(existingShowList));
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class))).thenReturn(Mono.just(patchedShowList));
+
+        var operations = List.of(
+                new ShowListOperation("move", null, null, 2, 0),
+                new ShowListOperation("remove", null, 2, null, null),
+                new ShowListOperation("insert", "Non Non Biyori", 2, null, null));
+
+        var userJwt = jwtEncoder.encodeUserJwt(username);
+        webTestClient.patch()
+                .uri("/show-lists/" + username)
+                .header("Authorization", "Bearer " + userJwt)
+                .body(Mono.just(operations), new ParameterizedTypeReference<List<ShowListOperation>>() {})
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ShowList.class)
+                .value(body -> Assertions.assertEquals(patchedRankedShows, body.showList()));
+
+        Assertions.assertEquals(patchedRankedShows, ShowList.applyOperations(existingShowList.showList(), operations));
+    }
+
+    @Test
+    void patchShowList_WhenOperationIndexIsOutOfRange_Returns400_BadRequestStatus_WithResponseBodyContainingProblemDetails() {
+        var username = "Honoka";
+        var existingShowList = new ShowList("id", username, ShowList.rankShowNames(List.of("Love Live")), 1L);
+
+        Mockito.when(showListRepository.findByUsername(username)).thenReturn(Mono.just(existingShowList));
+
+        var userJwt = jwtEncoder.encodeUserJwt(username);
+        webTestClient.patch()
+                .uri("/show-lists/" + username)
+                .header("Authorization", "Bearer " + userJwt)
+                .body(Mono.just(List.of(new ShowListOperation("move", null, null, 0, 5))),
+                        new ParameterizedTypeReference<List<ShowListOperation>>() {})
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ProblemDetails.class)
+                .value(body -> {
+                    Assertions.assertEquals("bad request", body.title());
+                    Assertions.assertEquals("operation at index: 0 must have its to field within the show list", body.detail());
+                });
+    }
+
+    @Test
+    void upsertShowList_WhenIfMatchVersionIsStale_Returns412_PreconditionFailedStatus_WithResponseBodyContainingProblemDetails() {
+        var username = "Honoka";
+        var showList = ShowList.rankShowNames(List.of("Love Live", "Idoly Pride"));
+
+        Mockito.when(reactiveMongoTemplate.findAndModify(
+                ArgumentMatchers.any(Query.class),
+                ArgumentMatchers.any(UpdateDefinition.class),
+                ArgumentMatchers.any(FindAndModifyOptions.class),
+                ArgumentMatchers.eq(ShowList.class))).thenReturn(Mono.empty());
+        Mockito.when(reactiveMongoTemplate.exists(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(ShowList.class)))
+                .thenReturn(Mono.just(true));
+
+        var userJwt = jwtEncoder.encodeUserJwt(username);
+        webTestClient.put()
+                .uri("/show-lists/" + username)
+                .header("Authorization", "Bearer " + userJwt)
+                .header("If-Match", "\"3\"")
+                .body(Mono.just(showList), new ParameterizedTypeReference<List<RankedShow>>() {})
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody(ProblemDetails.class)
+                .value(body -> {
+                    Assertions.assertEquals("precondition failed", body.title());
+                    Assertions.assertEquals("412", body.status());
                 });
     }
 }
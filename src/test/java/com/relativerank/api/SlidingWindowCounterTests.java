@@ -0,0 +1,88 @@
+package com.relativerank.api;
+
+import com.relativerank.api.util.SlidingWindowCounter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SlidingWindowCounterTests {
+
+    @Test
+    void count_OnlyIncludesEventsInsideTheWindow() {
+        var now = new AtomicLong(10_000);
+        var counter = new SlidingWindowCounter(Duration.ofSeconds(10), 10, now::get);
+
+        counter.increment();
+        counter.increment();
+        now.addAndGet(5_000);
+        counter.increment();
+        Assertions.assertEquals(3, counter.count());
+
+        now.addAndGet(5_000);
+        Assertions.assertEquals(1, counter.count());
+
+        now.addAndGet(5_000);
+        Assertions.assertEquals(0, counter.count());
+    }
+
+    @Test
+    void untilBelow_ReturnsTimeUntilOldestEventsLeaveTheWindow() {
+        var now = new AtomicLong(10_000);
+        var counter = new SlidingWindowCounter(Duration.ofSeconds(10), 10, now::get);
+
+        counter.increment();
+        now.addAndGet(3_000);
+        counter.increment();
+        Assertions.assertEquals(Duration.ZERO, counter.untilBelow(3));
+        Assertions.assertEquals(Duration.ofSeconds(7), counter.untilBelow(2));
+        Assertions.assertEquals(Duration.ofSeconds(10), counter.untilBelow(1));
+    }
+
+    @Test
+    void tryIncrement_WhenCalledConcurrently_CountsExactlyUpToTheLimit() throws InterruptedException {
+        var counter = new SlidingWindowCounter(Duration.ofMinutes(1), 12, System::currentTimeMillis);
+        var threads = 32;
+        var start = new CountDownLatch(1);
+        var counted = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(threads);
+        for (var i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (var attempt = 0; attempt < 100; attempt++) {
+                    if (counter.tryIncrement(10).isZero()) {
+                        counted.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(10, counted.get());
+        Assertions.assertEquals(10, counter.count());
+    }
+
+    @Test
+    void decrement_TakesBackAnEventInTheCurrentBucket() {
+        var now = new AtomicLong(10_000);
+        var counter = new SlidingWindowCounter(Duration.ofSeconds(10), 10, now::get);
+
+        Assertions.assertTrue(counter.tryIncrement(1).isZero());
+        Assertions.assertFalse(counter.tryIncrement(1).isZero());
+
+        counter.decrement();
+        Assertions.assertEquals(0, counter.count());
+        Assertions.assertTrue(counter.tryIncrement(1).isZero());
+    }
+}
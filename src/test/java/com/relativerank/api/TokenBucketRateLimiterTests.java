@@ -0,0 +1,42 @@
+package com.relativerank.api;
+
+import com.relativerank.api.util.TokenBucketRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucketRateLimiterTests {
+
+    @Test
+    void reserve_AfterBurstIsSpent_SpacesPermitsAtTheRefillRate() {
+        var now = new AtomicLong(5_000_000_000L);
+        var rateLimiter = new TokenBucketRateLimiter(10, 2, now::get);
+        var maxWait = Duration.ofSeconds(1);
+
+        Assertions.assertEquals(Duration.ZERO, rateLimiter.reserve(maxWait));
+        Assertions.assertEquals(Duration.ZERO, rateLimiter.reserve(maxWait));
+        Assertions.assertEquals(Duration.ofMillis(100), rateLimiter.reserve(maxWait));
+        Assertions.assertEquals(Duration.ofMillis(200), rateLimiter.reserve(maxWait));
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        Assertions.assertEquals(Duration.ZERO, rateLimiter.reserve(maxWait));
+    }
+
+    @Test
+    void reserve_WhenWaitWouldExceedMaxWait_RefusesWithoutBookingThePermit() {
+        var now = new AtomicLong(5_000_000_000L);
+        var rateLimiter = new TokenBucketRateLimiter(10, 1, now::get);
+
+        Assertions.assertEquals(Duration.ZERO, rateLimiter.reserve(Duration.ZERO));
+        for (var i = 0; i < 1_000; i++) {
+            Assertions.assertNull(rateLimiter.reserve(Duration.ofMillis(50)));
+        }
+
+        // the refused callers left the bucket where it was
+        Assertions.assertEquals(Duration.ofMillis(100), rateLimiter.reserve(Duration.ofMillis(100)));
+        now.addAndGet(Duration.ofMillis(200).toNanos());
+        Assertions.assertEquals(Duration.ZERO, rateLimiter.reserve(Duration.ZERO));
+    }
+}
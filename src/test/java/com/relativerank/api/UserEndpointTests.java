@@ -1,22 +1,30 @@
 package com.relativerank.api;
 
+import com.mongodb.client.result.UpdateResult;
 import com.relativerank.api.db.User;
 import com.relativerank.api.dto.DeleteUserRequest;
 import com.relativerank.api.dto.ProblemDetails;
 import com.relativerank.api.dto.UserAuthenticationResponse;
 import com.relativerank.api.dto.UsernamePassword;
+import org.bson.Document;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Mono;
 
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
+import java.util.List;
 
 public class UserEndpointTests extends EndpointTestsBase {
 
@@ -26,7 +34,7 @@ public class UserEndpointTests extends EndpointTestsBase {
         var loginRequest = new UsernamePassword("username", "password");
         var salt = passwordEncoder.generateRandomSalt();
         var hashedPassword = passwordEncoder.hmacSha512HashPassword(loginRequest.password(), salt);
-        var user = new User("id", loginRequest.username(), hashedPassword, salt);
+        var user = new User("id", loginRequest.username(), hashedPassword, salt, null);
         var loginSuccessJwt = jwtEncoder.encodeUserJwt(user.username());
 
         Mockito.when(userRepository.findByUsername(loginRequest.username())).thenReturn(Mono.just(user));
@@ -47,6 +55,42 @@ public class UserEndpointTests extends EndpointTestsBase {
                 });
     }
 
+    @Test
+    void loginEndpoint_WhenUserHasLegacyHash_RehashesOnlyIfStoredHashIsStillTheVerifiedOne()
+            throws NoSuchAlgorithmException, InvalidKeyException, InvalidKeySpecException {
+        var loginRequest = new UsernamePassword("legacy", "password");
+        var salt = passwordEncoder.generateRandomSalt();
+        var hashedPassword = passwordEncoder.hmacSha512HashPassword(loginRequest.password(), salt);
+        var user = new User("id", loginRequest.username(), hashedPassword, salt, null);
+
+        Mockito.when(userRepository.findByUsername(loginRequest.username())).thenReturn(Mono.just(user));
+        Mockito.when(reactiveMongoTemplate.updateFirst(
+                ArgumentMatchers.any(Query.class), ArgumentMatchers.any(UpdateDefinition.class), ArgumentMatchers.eq(User.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        webTestClient.post()
+                .uri("/login")
+                .body(BodyInserters.fromValue(loginRequest))
+                .exchange()
+                .expectStatus().isOk();
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        var update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        Mockito.verify(reactiveMongoTemplate)
+                .updateFirst(query.capture(), update.capture(), ArgumentMatchers.eq(User.class));
+        Mockito.verify(userRepository, Mockito.never()).save(ArgumentMatchers.any());
+
+        var queryObject = query.getValue().getQueryObject();
+        Assertions.assertEquals("id", queryObject.get("id"));
+        Assertions.assertArrayEquals(hashedPassword, (byte[]) queryObject.get("hashedPassword"));
+        Assertions.assertArrayEquals(salt, (byte[]) queryObject.get("passwordSalt"));
+
+        var set = update.getValue().getUpdateObject().get("$set", Document.class);
+        Assertions.assertEquals(1, set.get("passwordIterations"));
+        Assertions.assertArrayEquals(passwordEncoder.hashPassword(loginRequest.password(), (byte[]) set.get("passwordSalt"), 1),
+                (byte[]) set.get("hashedPassword"));
+    }
+
     @Test
     void loginEndpoint_WhenInvalidLogin_Returns401_UnauthorizedStatus_WithResponseBodyContainingInvalidUsernameOrPassword()
             throws NoSuchAlgorithmException, InvalidKeyException {
@@ -54,7 +98,7 @@ public class UserEndpointTests extends EndpointTestsBase {
         var existingUsernamePassword = new UsernamePassword("username", "secret");
         var salt = passwordEncoder.generateRandomSalt();
         var hashedPassword = passwordEncoder.hmacSha512HashPassword(existingUsernamePassword.password(), salt);
-        var existingUser = new User("id", loginRequest.username(), hashedPassword, salt);
+        var existingUser = new User("id", loginRequest.username(), hashedPassword, salt, null);
 
         Mockito.when(userRepository.findByUsername(loginRequest.username())).thenReturn(Mono.just(existingUser));
 
@@ -72,12 +116,56 @@ public class UserEndpointTests extends EndpointTestsBase {
     }
 
     @Test
-    void createUserEndpoint_WhenUserSuccessfullyCreated_Returns201_CreatedStatus_WithResponseBodyContainingUsernameAndJwt()
+    void loginEndpoint_WhenUsernameIsOutOfAttempts_Returns429_TooManyRequestsStatus_WithoutLookingUpUser()
             throws NoSuchAlgorithmException, InvalidKeyException {
+        var loginRequest = new UsernamePassword("throttled", "password");
+        var salt = passwordEncoder.generateRandomSalt();
+        var hashedPassword = passwordEncoder.hmacSha512HashPassword("secret", salt);
+        var existingUser = new User("id", loginRequest.username(), hashedPassword, salt, null);
+
+        Mockito.when(userRepository.findByUsername(loginRequest.username())).thenReturn(Mono.just(existingUser));
+
+        for (var i = 0; i < 10; i++) {
+            webTestClient.post()
+                    .uri("/login")
+                    .body(BodyInserters.fromValue(loginRequest))
+                    .exchange()
+                    .expectStatus().isUnauthorized();
+        }
+
+        webTestClient.post()
+                .uri("/login")
+                .body(BodyInserters.fromValue(loginRequest))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().exists("Retry-After")
+                .expectBody(ProblemDetails.class)
+                .value(response -> Assertions.assertEquals("429", response.status()));
+
+        Mockito.verify(userRepository, Mockito.times(10)).findByUsername(loginRequest.username());
+    }
+
+    @Test
+    void loginEndpoint_WhenUsernameIsMissing_Returns400_BadRequestStatus_WithResponseBodyContainingProblemDetails() {
+        webTestClient.post()
+                .uri("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"password\":\"password\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ProblemDetails.class)
+                .value(response -> Assertions.assertEquals("username is required", response.detail()));
+
+        Mockito.verify(userRepository, Mockito.never()).findByUsername(ArgumentMatchers.any());
+    }
+
+    @Test
+    void createUserEndpoint_WhenUserSuccessfullyCreated_Returns201_CreatedStatus_WithResponseBodyContainingUsernameAndJwt()
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
         var createUserRequest = new UsernamePassword("username", "password");
         var salt = passwordEncoder.generateRandomSalt();
-        var hashedPassword = passwordEncoder.hmacSha512HashPassword(createUserRequest.password(), salt);
-        var newUser = new User("id", createUserRequest.username(), hashedPassword, salt);
+        var hashedPassword = passwordEncoder.hashPassword(createUserRequest.password(), salt, 1);
+        var newUser = new User("id", createUserRequest.username(), hashedPassword, salt, 1);
         var newUserJwt = jwtEncoder.encodeUserJwt(newUser.username());
 
         ArgumentMatcher<User> usersMatchArgMatcher = user -> user.username().equals(newUser.username())
@@ -109,12 +197,12 @@ public class UserEndpointTests extends EndpointTestsBase {
 
     @Test
     void createUserEndpoint_WhenExceptionIsThrown_Returns201_CreatedStatus_WithResponseBodyContainingFailedToCreateUser()
-            throws NoSuchAlgorithmException, InvalidKeyException {
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
         var createUserRequest = new UsernamePassword("username", "password");
 
         Mockito.doThrow(RuntimeException.class)
                 .when(passwordEncoder)
-                .hmacSha512HashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class));
+                .hashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class), ArgumentMatchers.anyInt());
 
         webTestClient.post()
                 .uri("/users")
@@ -131,7 +219,7 @@ public class UserEndpointTests extends EndpointTestsBase {
         // clean up so other calls use real method
         Mockito.doCallRealMethod()
                 .when(passwordEncoder)
-                .hmacSha512HashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class));
+                .hashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class), ArgumentMatchers.anyInt());
     }
 
     @Test
@@ -157,10 +245,25 @@ public class UserEndpointTests extends EndpointTestsBase {
                 .hmacSha512HashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class));
     }
 
+    @Test
+    void createUserEndpoint_WhenUsernameIsARoute_Returns400_BadRequestStatus_WithResponseBodyContainingProblemDetails() {
+        for (var reservedUsername : List.of("compare", "query")) {
+            webTestClient.post()
+                    .uri("/users")
+                    .body(BodyInserters.fromValue(new UsernamePassword(reservedUsername, "password")))
+                    .exchange()
+                    .expectStatus().isBadRequest()
+                    .expectBody(ProblemDetails.class)
+                    .value(response -> Assertions.assertEquals("username is reserved", response.detail()));
+        }
+
+        Mockito.verify(userRepository, Mockito.never()).save(ArgumentMatchers.any());
+    }
+
     @Test
     void updateUserEndpoint_WhenUserIsAdmin_Returns200_OkStatus_WithResponseBodyContainingUsernameAndJwt() {
         var updateUserRequest = new UsernamePassword("username", "password");
-        var existingUser = new User("id", updateUserRequest.username(), new byte[] {}, new byte[] {});
+        var existingUser = new User("id", updateUserRequest.username(), new byte[] {}, new byte[] {}, null);
 
         Mockito.when(userRepository.findByUsername(updateUserRequest.username()))
                 .thenReturn(Mono.just(existingUser));
@@ -182,15 +285,15 @@ public class UserEndpointTests extends EndpointTestsBase {
 
     @Test
     void updateUserEndpoint_WhenUserIsAdmin_WhenExceptionIsThrown_Returns201_CreatedStatus_WithResponseBodyContainingFailedToCreateUser()
-            throws NoSuchAlgorithmException, InvalidKeyException {
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
         var updateUserRequest = new UsernamePassword("username", "password");
-        var existingUser = new User("id", updateUserRequest.username(), new byte[] {}, new byte[] {});
+        var existingUser = new User("id", updateUserRequest.username(), new byte[] {}, new byte[] {}, null);
 
         Mockito.when(userRepository.findByUsername(updateUserRequest.username()))
                 .thenReturn(Mono.just(existingUser));
         Mockito.doThrow(RuntimeException.class)
                 .when(passwordEncoder)
-                .hmacSha512HashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class));
+                .hashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class), ArgumentMatchers.anyInt());
 
         var adminJwt = jwtEncoder.encodeUserJwt(adminUsername);
         webTestClient.patch()
@@ -209,13 +312,13 @@ public class UserEndpointTests extends EndpointTestsBase {
         // clean up so other calls use real method
         Mockito.doCallRealMethod()
                 .when(passwordEncoder)
-                .hmacSha512HashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class));
+                .hashPassword(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class), ArgumentMatchers.anyInt());
     }
 
     @Test
     void deleteUserEndpoint_WhenUserIsAdmin_Returns200_OkStatus_WithResponseBodySayingUserDeleted() {
         var deleteUserRequest = new DeleteUserRequest("username");
-        var user = new User("id", deleteUserRequest.username(), new byte[] {}, new byte[] {});
+        var user = new User("id", deleteUserRequest.username(), new byte[] {}, new byte[] {}, null);
 
         Mockito.when(userRepository.findByUsername(deleteUserRequest.username())).thenReturn(Mono.just(user));
         Mockito.when(userRepository.delete(ArgumentMatchers.any())).thenReturn(Mono.empty());